@@ -7,11 +7,17 @@ import android.app.Activity;
 import androidx.annotation.NonNull;
 
 import app.revanced.extension.shared.settings.BaseSettings;
+import app.revanced.extension.shared.utils.StartupTrace;
 import app.revanced.extension.shared.utils.Utils;
 
 @SuppressWarnings("unused")
 public class InitializationPatch {
 
+    /**
+     * Time after the main activity is created to stop collecting startup timings.
+     */
+    private static final long STARTUP_TRACE_DURATION_MILLIS = 10_000;
+
     /**
      * The new layout is not loaded normally when the app is first installed.
      * (Also reproduced on unPatched YouTube Music)
@@ -19,10 +25,17 @@ public class InitializationPatch {
      * To fix this, show the reboot dialog when the app is installed for the first time.
      */
     public static void onCreate(@NonNull Activity mActivity) {
-        if (BaseSettings.SETTINGS_INITIALIZED.get())
-            return;
+        final long start = StartupTrace.begin("InitializationPatch");
+        try {
+            Utils.runOnMainThreadDelayed(StartupTrace::finish, STARTUP_TRACE_DURATION_MILLIS);
+
+            if (BaseSettings.SETTINGS_INITIALIZED.get())
+                return;
 
-        showRestartDialog(mActivity, "revanced_extended_restart_first_run", 3000);
-        Utils.runOnMainThreadDelayed(() -> BaseSettings.SETTINGS_INITIALIZED.save(true), 3000);
+            showRestartDialog(mActivity, "revanced_extended_restart_first_run", 3000);
+            Utils.runOnMainThreadDelayed(() -> BaseSettings.SETTINGS_INITIALIZED.save(true), 3000);
+        } finally {
+            StartupTrace.end("InitializationPatch", start);
+        }
     }
 }
\ No newline at end of file
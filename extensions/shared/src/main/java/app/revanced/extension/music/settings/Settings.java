@@ -20,11 +20,17 @@ import app.revanced.extension.shared.settings.LongSetting;
 import app.revanced.extension.shared.settings.Setting;
 import app.revanced.extension.shared.settings.StringSetting;
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.StartupTrace;
 import app.revanced.extension.shared.utils.Utils;
 
 
 @SuppressWarnings("unused")
 public class Settings extends BaseSettings {
+    /**
+     * Must be declared first, so the startup trace includes loading every setting below.
+     */
+    private static final long classInitStartTime = StartupTrace.begin("Settings");
+
     // PreferenceScreen: Account
     public static final BooleanSetting HIDE_ACCOUNT_MENU = new BooleanSetting("revanced_hide_account_menu", FALSE);
     public static final StringSetting HIDE_ACCOUNT_MENU_FILTER_STRINGS = new StringSetting("revanced_hide_account_menu_filter_strings", "");
@@ -100,7 +106,7 @@ public class Settings extends BaseSettings {
     public static final BooleanSetting DISABLE_DISLIKE_REDIRECTION = new BooleanSetting("revanced_disable_dislike_redirection", FALSE);
     public static final BooleanSetting ENABLE_LANDSCAPE_MODE = new BooleanSetting("revanced_enable_landscape_mode", FALSE, true);
     public static final BooleanSetting CUSTOM_FILTER = new BooleanSetting("revanced_custom_filter", FALSE);
-    public static final StringSetting CUSTOM_FILTER_STRINGS = new StringSetting("revanced_custom_filter_strings", "", true);
+    public static final StringSetting CUSTOM_FILTER_STRINGS = new StringSetting("revanced_custom_filter_strings", "");
     public static final BooleanSetting HIDE_BUTTON_SHELF = new BooleanSetting("revanced_hide_button_shelf", FALSE, true);
     public static final BooleanSetting HIDE_CAROUSEL_SHELF = new BooleanSetting("revanced_hide_carousel_shelf", FALSE, true);
     public static final BooleanSetting HIDE_CAST_BUTTON = new BooleanSetting("revanced_hide_cast_button", TRUE);
@@ -257,10 +263,14 @@ public class Settings extends BaseSettings {
         Setting.addImportExportCallback(SponsorBlockSettings.SB_IMPORT_EXPORT_CALLBACK);
 
         // endregion
+
+        StartupTrace.end("Settings", classInitStartTime);
     }
 
     public static final String OPEN_DEFAULT_APP_SETTINGS = "revanced_default_app_settings";
 
+    public static final String STARTUP_TRACE = "revanced_startup_trace";
+
     /**
      * If a setting path has this prefix, then remove it.
      */
@@ -290,6 +300,7 @@ public class Settings extends BaseSettings {
             SETTINGS_IMPORT_EXPORT.key,
             SPOOF_APP_VERSION_TARGET.key,
             SPOOF_CLIENT_TYPE.key,
+            STARTUP_TRACE,
             WATCH_HISTORY_TYPE.key,
     };
 
@@ -18,6 +18,7 @@ import static app.revanced.extension.music.settings.Settings.SB_API_URL;
 import static app.revanced.extension.music.settings.Settings.SETTINGS_IMPORT_EXPORT;
 import static app.revanced.extension.music.settings.Settings.SPOOF_APP_VERSION_TARGET;
 import static app.revanced.extension.music.settings.Settings.SPOOF_CLIENT_TYPE;
+import static app.revanced.extension.music.settings.Settings.STARTUP_TRACE;
 import static app.revanced.extension.music.settings.Settings.WATCH_HISTORY_TYPE;
 import static app.revanced.extension.music.utils.ExtendedUtils.getDialogBuilder;
 import static app.revanced.extension.music.utils.ExtendedUtils.getLayoutParams;
@@ -66,6 +67,7 @@ import app.revanced.extension.shared.settings.Setting;
 import app.revanced.extension.shared.settings.StringSetting;
 import app.revanced.extension.shared.settings.preference.YouTubeDataAPIDialogBuilder;
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.StartupTrace;
 import app.revanced.extension.shared.utils.Utils;
 
 @SuppressWarnings("all")
@@ -135,6 +137,9 @@ public class ReVancedPreferenceFragment extends PreferenceFragment {
             } else if (dataString.equals(OPEN_DEFAULT_APP_SETTINGS)) {
                 openDefaultAppSetting();
                 return;
+            } else if (dataString.equals(STARTUP_TRACE)) {
+                startupTraceDialogBuilder();
+                return;
             }
 
             final Setting<?> settings = getSettingFromPath(dataString);
@@ -200,6 +205,23 @@ public class ReVancedPreferenceFragment extends PreferenceFragment {
         }
     }
 
+    /**
+     * Build a Dialog with the timings of {@link StartupTrace}
+     */
+    private void startupTraceDialogBuilder() {
+        try {
+            final String report = StartupTrace.getReport();
+            getDialogBuilder(getActivity())
+                    .setTitle(str("revanced_startup_trace_title"))
+                    .setMessage(report)
+                    .setPositiveButton(android.R.string.ok, null)
+                    .setNeutralButton(str("revanced_startup_trace_copy"), (dialog, which) -> Utils.setClipboard(report, str("revanced_startup_trace_copy_success")))
+                    .show();
+        } catch (Exception ex) {
+            Logger.printException(() -> "startupTraceDialogBuilder failure", ex);
+        }
+    }
+
     /**
      * Build a ListDialog for Import / Export settings
      * When importing/exporting as file, {@link #onActivityResult} is used, so declare it here.
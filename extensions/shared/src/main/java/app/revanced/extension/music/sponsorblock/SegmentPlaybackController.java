@@ -9,15 +9,17 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.lang.reflect.Field;
-import java.util.Arrays;
 import java.util.Objects;
 
 import app.revanced.extension.music.settings.Settings;
 import app.revanced.extension.music.shared.VideoInformation;
 import app.revanced.extension.music.sponsorblock.objects.CategoryBehaviour;
+import app.revanced.extension.music.sponsorblock.objects.SegmentCategory;
 import app.revanced.extension.music.sponsorblock.objects.SponsorSegment;
 import app.revanced.extension.music.sponsorblock.requests.SBRequester;
+import app.revanced.extension.shared.sponsorblock.SegmentEngine;
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.ThreadLane;
 import app.revanced.extension.shared.utils.Utils;
 
 /**
@@ -29,24 +31,74 @@ import app.revanced.extension.shared.utils.Utils;
 public class SegmentPlaybackController {
     @Nullable
     private static String currentVideoId;
-    @Nullable
-    private static SponsorSegment[] segments;
     /**
-     * Currently playing (non-highlight) segment that user can manually skip.
+     * Segments of the current video.
      */
-    @Nullable
-    private static SponsorSegment segmentCurrentlyPlaying;
+    private static final SegmentEngine<SponsorSegment> segmentEngine = new SegmentEngine<>(new SegmentEngine.Adapter<>() {
+        @Override
+        public boolean isPlaybackSegment(@NonNull SponsorSegment segment) {
+            return segment.category.behaviour != CategoryBehaviour.IGNORE;
+        }
+
+        @Override
+        public void drawSegment(@NonNull Canvas canvas, @NonNull SponsorSegment segment,
+                                float videoMillisecondsToPixels, float bottom) {
+            final float left = segment.start * videoMillisecondsToPixels;
+            final float right = segment.end * videoMillisecondsToPixels;
+            canvas.drawRect(left, 0, right, bottom, segment.category.paint);
+        }
+
+        @Nullable
+        @Override
+        public SponsorSegment[] fetchSegments(@NonNull String videoId) {
+            return SBRequester.prefetchSegments(videoId);
+        }
+
+        @Override
+        public void onScheduledHide(@NonNull SponsorSegment segmentToHide, long speedAdjustedTimeThreshold) {
+            final long videoTime = VideoInformation.getVideoTime();
+            if (!segmentToHide.endIsNear(videoTime, speedAdjustedTimeThreshold)) {
+                // current video time is not what's expected.  User paused playback
+                Logger.printDebug(() -> "Ignoring outdated scheduled hide: " + segmentToHide
+                        + " videoInformation time: " + videoTime);
+                return;
+            }
+            Logger.printDebug(() -> "Running scheduled hide segment: " + segmentToHide);
+            // Need more than just hide the skip button, as this may have been an embedded segment
+            // Instead call back into setVideoTime to check everything again.
+            // Should not use VideoInformation time as it is less accurate,
+            // but this scheduled handler was scheduled precisely so we can just use the segment end time
+            setSegmentCurrentlyPlaying(null);
+            setVideoTime(segmentToHide.end);
+        }
+
+        @Override
+        public void onScheduledUpcoming(@NonNull SponsorSegment segmentToSkip, long speedAdjustedTimeThreshold) {
+            final long videoTime = VideoInformation.getVideoTime();
+            if (!segmentToSkip.startIsNear(videoTime, speedAdjustedTimeThreshold)) {
+                // current video time is not what's expected.  User paused playback
+                Logger.printDebug(() -> "Ignoring outdated scheduled segment: " + segmentToSkip
+                        + " videoInformation time: " + videoTime);
+                return;
+            }
+            if (segmentToSkip.shouldAutoSkip()) {
+                Logger.printDebug(() -> "Running scheduled skip segment: " + segmentToSkip);
+                skipSegment(segmentToSkip);
+            } else {
+                Logger.printDebug(() -> "Running scheduled show segment: " + segmentToSkip);
+                setSegmentCurrentlyPlaying(segmentToSkip);
+            }
+        }
+    });
     /**
-     * Currently playing manual skip segment that is scheduled to hide.
-     * This will always be NULL or equal to {@link #segmentCurrentlyPlaying}.
+     * Reused result of {@link SegmentEngine#findSegments}.
      */
-    @Nullable
-    private static SponsorSegment scheduledHideSegment;
+    private static final SegmentEngine.FoundSegments<SponsorSegment> foundSegments = new SegmentEngine.FoundSegments<>();
     /**
-     * Upcoming segment that is scheduled to either autoskip or show the manual skip button.
+     * Currently playing (non-highlight) segment that user can manually skip.
      */
     @Nullable
-    private static SponsorSegment scheduledUpcomingSegment;
+    private static SponsorSegment segmentCurrentlyPlaying;
     /**
      * System time (in milliseconds) of when to hide the skip button of {@link #segmentCurrentlyPlaying}.
      * Value is zero if playback is not inside a segment ({@link #segmentCurrentlyPlaying} is null),
@@ -63,8 +115,7 @@ public class SegmentPlaybackController {
     private static SponsorSegment toastSegmentSkipped;
 
     private static void setSegments(@NonNull SponsorSegment[] videoSegments) {
-        Arrays.sort(videoSegments);
-        segments = videoSegments;
+        segmentEngine.setSegments(videoSegments);
     }
 
     /**
@@ -73,10 +124,8 @@ public class SegmentPlaybackController {
     private static void clearData() {
         SponsorBlockSettings.initialize();
         currentVideoId = null;
-        segments = null;
+        segmentEngine.clear();
         segmentCurrentlyPlaying = null;
-        scheduledUpcomingSegment = null;
-        scheduledHideSegment = null;
         skipSegmentButtonEndTime = 0;
         toastSegmentSkipped = null;
         toastNumberOfSegmentsSkipped = 0;
@@ -102,7 +151,7 @@ public class SegmentPlaybackController {
             currentVideoId = videoId;
             Logger.printDebug(() -> "setCurrentVideoId: " + videoId);
 
-            Utils.runOnBackgroundThread(() -> {
+            Utils.runOnBackgroundThread(ThreadLane.PLAYBACK, () -> {
                 try {
                     executeDownloadSegments(videoId);
                 } catch (Exception e) {
@@ -114,13 +163,38 @@ public class SegmentPlaybackController {
         }
     }
 
+    /**
+     * Injection point.  Uses 'playback response' video id hook to prefetch segments.
+     * Called off the main thread, before the video is opened.
+     */
+    public static void preloadVideoId(@NonNull String videoId) {
+        try {
+            if (!Settings.SB_ENABLED.get()) {
+                return;
+            }
+            if (videoId.equals(currentVideoId)) {
+                return;
+            }
+            if (Utils.isNetworkNotConnected()) {
+                return;
+            }
+
+            segmentEngine.prefetch(videoId);
+        } catch (Exception ex) {
+            Logger.printException(() -> "preloadVideoId failure", ex);
+        }
+    }
+
     /**
      * Must be called off main thread
      */
     static void executeDownloadSegments(@NonNull String videoId) {
         Objects.requireNonNull(videoId);
         try {
-            SponsorSegment[] segments = SBRequester.getSegments(videoId);
+            SponsorSegment[] prefetchedSegments = segmentEngine.takePrefetchedSegments(videoId);
+            SponsorSegment[] segments = prefetchedSegments != null
+                    ? prefetchedSegments
+                    : SBRequester.getSegments(videoId);
 
             Utils.runOnMainThread(() -> {
                 if (!videoId.equals(currentVideoId)) {
@@ -145,12 +219,14 @@ public class SegmentPlaybackController {
      */
     public static void setVideoTime(long millis) {
         try {
-            if (!Settings.SB_ENABLED.get() || segments == null || segments.length == 0) {
+            if (!Settings.SB_ENABLED.get() || !segmentEngine.hasSegments()) {
                 return;
             }
             Logger.printDebug(() -> "setVideoTime: " + millis);
 
             final float playbackSpeed = VideoInformation.getPlaybackSpeed();
+            segmentEngine.updatePlaybackPosition(millis, playbackSpeed);
+
             // Amount of time to look ahead for the next segment,
             // and the threshold to determine if a scheduled show/hide is at the correct video time when it's run.
             //
@@ -160,72 +236,14 @@ public class SegmentPlaybackController {
             // To debug the stale skip logic, set this to a very large value (5000 or more)
             // then try manually seeking just before playback reaches a segment skip.
             final long speedAdjustedTimeThreshold = (long) (playbackSpeed * 1200);
-            final long startTimerLookAheadThreshold = millis + speedAdjustedTimeThreshold;
-
-            SponsorSegment foundSegmentCurrentlyPlaying = null;
-            SponsorSegment foundUpcomingSegment = null;
-
-            for (final SponsorSegment segment : segments) {
-                if (segment.category.behaviour == CategoryBehaviour.IGNORE) {
-                    continue;
-                }
-                if (segment.end <= millis) {
-                    continue; // past this segment
-                }
-
-                if (segment.start <= millis) {
-                    // we are in the segment!
-                    if (segment.shouldAutoSkip()) {
-                        skipSegment(segment);
-                        return; // must return, as skipping causes a recursive call back into this method
-                    }
 
-                    // first found segment, or it's an embedded segment and fully inside the outer segment
-                    if (foundSegmentCurrentlyPlaying == null || foundSegmentCurrentlyPlaying.containsSegment(segment)) {
-                        // If the found segment is not currently displayed, then do not show if the segment is nearly over.
-                        // This check prevents the skip button text from rapidly changing when multiple segments end at nearly the same time.
-                        // Also prevents showing the skip button if user seeks into the last 800ms of the segment.
-                        final long minMillisOfSegmentRemainingThreshold = 800;
-                        if (segmentCurrentlyPlaying == segment
-                                || !segment.endIsNear(millis, minMillisOfSegmentRemainingThreshold)) {
-                            foundSegmentCurrentlyPlaying = segment;
-                        } else {
-                            Logger.printDebug(() -> "Ignoring segment that ends very soon: " + segment);
-                        }
-                    }
-                    // Keep iterating and looking. There may be an upcoming autoskip,
-                    // or there may be another smaller segment nested inside this segment
-                    continue;
-                }
-
-                // segment is upcoming
-                if (startTimerLookAheadThreshold < segment.start) {
-                    break; // segment is not close enough to schedule, and no segments after this are of interest
-                }
-                if (segment.shouldAutoSkip()) { // upcoming autoskip
-                    foundUpcomingSegment = segment;
-                    break; // must stop here
-                }
-
-                // upcoming manual skip
-
-                // do not schedule upcoming segment, if it is not fully contained inside the current segment
-                if ((foundSegmentCurrentlyPlaying == null || foundSegmentCurrentlyPlaying.containsSegment(segment))
-                        // use the most inner upcoming segment
-                        && (foundUpcomingSegment == null || foundUpcomingSegment.containsSegment(segment))) {
-
-                    // Only schedule, if the segment start time is not near the end time of the current segment.
-                    // This check is needed to prevent scheduled hide and show from clashing with each other.
-                    // Instead the upcoming segment will be handled when the current segment scheduled hide calls back into this method.
-                    final long minTimeBetweenStartEndOfSegments = 1000;
-                    if (foundSegmentCurrentlyPlaying == null
-                            || !foundSegmentCurrentlyPlaying.endIsNear(segment.start, minTimeBetweenStartEndOfSegments)) {
-                        foundUpcomingSegment = segment;
-                    } else {
-                        Logger.printDebug(() -> "Not scheduling segment (start time is near end of current segment): " + segment);
-                    }
-                }
+            segmentEngine.findSegments(millis, speedAdjustedTimeThreshold, segmentCurrentlyPlaying, foundSegments);
+            if (foundSegments.segmentToSkip != null) {
+                skipSegment(foundSegments.segmentToSkip);
+                return; // must return, as skipping causes a recursive call back into this method
             }
+            final SponsorSegment foundSegmentCurrentlyPlaying = foundSegments.segmentCurrentlyPlaying;
+            final SponsorSegment foundUpcomingSegment = foundSegments.upcomingSegment;
 
             if (segmentCurrentlyPlaying != foundSegmentCurrentlyPlaying) {
                 setSegmentCurrentlyPlaying(foundSegmentCurrentlyPlaying);
@@ -241,73 +259,7 @@ public class SegmentPlaybackController {
                             ? foundSegmentCurrentlyPlaying
                             : null;
 
-            if (scheduledHideSegment != segmentToHide) {
-                if (segmentToHide == null) {
-                    Logger.printDebug(() -> "Clearing scheduled hide: " + scheduledHideSegment);
-                    scheduledHideSegment = null;
-                } else {
-                    scheduledHideSegment = segmentToHide;
-                    Logger.printDebug(() -> "Scheduling hide segment: " + segmentToHide + " playbackSpeed: " + playbackSpeed);
-                    final long delayUntilHide = (long) ((segmentToHide.end - millis) / playbackSpeed);
-                    Utils.runOnMainThreadDelayed(() -> {
-                        if (scheduledHideSegment != segmentToHide) {
-                            Logger.printDebug(() -> "Ignoring old scheduled hide segment: " + segmentToHide);
-                            return;
-                        }
-                        scheduledHideSegment = null;
-
-                        final long videoTime = VideoInformation.getVideoTime();
-                        if (!segmentToHide.endIsNear(videoTime, speedAdjustedTimeThreshold)) {
-                            // current video time is not what's expected.  User paused playback
-                            Logger.printDebug(() -> "Ignoring outdated scheduled hide: " + segmentToHide
-                                    + " videoInformation time: " + videoTime);
-                            return;
-                        }
-                        Logger.printDebug(() -> "Running scheduled hide segment: " + segmentToHide);
-                        // Need more than just hide the skip button, as this may have been an embedded segment
-                        // Instead call back into setVideoTime to check everything again.
-                        // Should not use VideoInformation time as it is less accurate,
-                        // but this scheduled handler was scheduled precisely so we can just use the segment end time
-                        setSegmentCurrentlyPlaying(null);
-                        setVideoTime(segmentToHide.end);
-                    }, delayUntilHide);
-                }
-            }
-
-            if (scheduledUpcomingSegment != foundUpcomingSegment) {
-                if (foundUpcomingSegment == null) {
-                    Logger.printDebug(() -> "Clearing scheduled segment: " + scheduledUpcomingSegment);
-                    scheduledUpcomingSegment = null;
-                } else {
-                    scheduledUpcomingSegment = foundUpcomingSegment;
-                    final SponsorSegment segmentToSkip = foundUpcomingSegment;
-
-                    Logger.printDebug(() -> "Scheduling segment: " + segmentToSkip + " playbackSpeed: " + playbackSpeed);
-                    final long delayUntilSkip = (long) ((segmentToSkip.start - millis) / playbackSpeed);
-                    Utils.runOnMainThreadDelayed(() -> {
-                        if (scheduledUpcomingSegment != segmentToSkip) {
-                            Logger.printDebug(() -> "Ignoring old scheduled segment: " + segmentToSkip);
-                            return;
-                        }
-                        scheduledUpcomingSegment = null;
-
-                        final long videoTime = VideoInformation.getVideoTime();
-                        if (!segmentToSkip.startIsNear(videoTime, speedAdjustedTimeThreshold)) {
-                            // current video time is not what's expected.  User paused playback
-                            Logger.printDebug(() -> "Ignoring outdated scheduled segment: " + segmentToSkip
-                                    + " videoInformation time: " + videoTime);
-                            return;
-                        }
-                        if (segmentToSkip.shouldAutoSkip()) {
-                            Logger.printDebug(() -> "Running scheduled skip segment: " + segmentToSkip);
-                            skipSegment(segmentToSkip);
-                        } else {
-                            Logger.printDebug(() -> "Running scheduled show segment: " + segmentToSkip);
-                            setSegmentCurrentlyPlaying(segmentToSkip);
-                        }
-                    }, delayUntilSkip);
-                }
-            }
+            segmentEngine.scheduleSegments(segmentToHide, foundUpcomingSegment, speedAdjustedTimeThreshold);
         } catch (Exception e) {
             Logger.printException(() -> "setVideoTime failure", e);
         }
@@ -343,8 +295,7 @@ public class SegmentPlaybackController {
             lastSegmentSkipped = segmentToSkip;
             lastSegmentSkippedTime = now;
             setSegmentCurrentlyPlaying(null);
-            scheduledHideSegment = null;
-            scheduledUpcomingSegment = null;
+            segmentEngine.clearScheduledSegments();
 
             // If the seek is successful, then the seek causes a recursive call back into this class.
             final boolean seekSuccessful = VideoInformation.seekTo(segmentToSkip.end);
@@ -356,7 +307,7 @@ public class SegmentPlaybackController {
 
             // check for any smaller embedded segments, and count those as autoskipped
             final boolean showSkipToast = Settings.SB_TOAST_ON_SKIP.get();
-            for (final SponsorSegment otherSegment : Objects.requireNonNull(segments)) {
+            for (final SponsorSegment otherSegment : Objects.requireNonNull(segmentEngine.getSegments())) {
                 if (segmentToSkip.end < otherSegment.start) {
                     break; // no other segments can be contained
                 }
@@ -449,21 +400,12 @@ public class SegmentPlaybackController {
      */
     public static void drawSponsorTimeBars(final Canvas canvas, final float posY) {
         try {
-            if (segments == null) return;
+            if (!segmentEngine.hasSegments()) return;
             final long videoLength = VideoInformation.getVideoLength();
             if (videoLength <= 0) return;
 
-            final int thicknessDiv2 = sponsorBarThickness / 2; // rounds down
-            final float top = posY - (sponsorBarThickness - thicknessDiv2);
-            final float bottom = posY + thicknessDiv2;
-            final float videoMillisecondsToPixels = (1f / videoLength) * (sponsorAbsoluteBarRight - sponsorBarAbsoluteLeft);
-            final float leftPadding = sponsorBarAbsoluteLeft;
-
-            for (SponsorSegment segment : segments) {
-                final float left = leftPadding + segment.start * videoMillisecondsToPixels;
-                final float right = leftPadding + segment.end * videoMillisecondsToPixels;
-                canvas.drawRect(left, top, right, bottom, segment.category.paint);
-            }
+            segmentEngine.drawSegmentBar(canvas, posY, sponsorBarAbsoluteLeft, sponsorAbsoluteBarRight, sponsorBarThickness,
+                    0, videoLength, SegmentCategory.getPaintVersion());
         } catch (Exception ex) {
             Logger.printException(() -> "drawSponsorTimeBars failure", ex);
         }
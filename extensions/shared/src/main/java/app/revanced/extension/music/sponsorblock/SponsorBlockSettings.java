@@ -10,6 +10,7 @@ import java.util.UUID;
 import app.revanced.extension.music.settings.Settings;
 import app.revanced.extension.music.sponsorblock.objects.SegmentCategory;
 import app.revanced.extension.shared.settings.Setting;
+import app.revanced.extension.shared.utils.StartupTrace;
 
 public class SponsorBlockSettings {
 
@@ -55,6 +56,6 @@ public class SponsorBlockSettings {
         }
         initialized = true;
 
-        SegmentCategory.updateEnabledCategories();
+        StartupTrace.trace("SponsorBlockSettings", SegmentCategory::updateEnabledCategories);
     }
 }
@@ -77,6 +77,16 @@ public enum SegmentCategory {
      */
     public static String sponsorBlockAPIFetchCategories = "[]";
 
+    /**
+     * Incremented when the paint color of any category changes.
+     * Not initialized here, as it's first changed while the categories are created.
+     */
+    private static int paintVersion;
+
+    public static int getPaintVersion() {
+        return paintVersion;
+    }
+
     static {
         for (SegmentCategory value : categoriesWithoutUnsubmitted)
             mValuesMap.put(value.keyValue, value);
@@ -246,6 +256,7 @@ public enum SegmentCategory {
         this.color = color;
         paint.setColor(color);
         paint.setAlpha(255);
+        paintVersion++;
         colorSetting.save(colorString); // Save after parsing.
     }
 
@@ -0,0 +1,369 @@
+package app.revanced.extension.shared.patches.components;
+
+import static app.revanced.extension.shared.utils.StringRef.str;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import app.revanced.extension.shared.settings.BooleanSetting;
+import app.revanced.extension.shared.settings.StringSetting;
+import app.revanced.extension.shared.utils.ByteTrieSearch;
+import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.StringTrieSearch;
+import app.revanced.extension.shared.utils.ThreadLane;
+import app.revanced.extension.shared.utils.Utils;
+
+/**
+ * Compiles the custom filter rules of a setting into shared search trees.
+ * <p>
+ * One rule per line:
+ * <pre>
+ * path                     Path contains 'path'.
+ * ^path                    Path starts with 'path'.
+ * path$buffer              Path contains 'path' and the proto buffer contains 'buffer'.
+ * &#64;identifier              Match the identifier instead of the path. Can be combined with ^ and $.
+ * !rule                    Exception. Components matching this rule are never hidden by the other rules.
+ * # comment                Ignored.
+ * file:///path/rules.txt   Imports the rules of a local text file, using the same syntax.
+ * </pre>
+ * All rules share one path tree, one identifier tree and one buffer tree,
+ * so each component is searched once no matter how many rules are used.
+ * <p>
+ * The rules are compiled again when the setting changes, without restarting the app.
+ * Compiling happens on {@link ThreadLane#CPU} and the new rules are swapped in when ready.
+ */
+public final class CustomFilterRuleEngine {
+    private static final String SYNTAX_COMMENT = "#";
+    private static final String SYNTAX_EXCEPTION = "!";
+    private static final String SYNTAX_IDENTIFIER = "@";
+    /**
+     * Optional character for the path that indicates the custom filter path must match the start.
+     */
+    private static final String SYNTAX_STARTS_WITH = "^";
+    /**
+     * Optional character that separates the path from a proto buffer string pattern.
+     */
+    private static final char SYNTAX_BUFFER_SYMBOL = '$';
+    /**
+     * Imports rules from a local file. Files in the app specific external storage
+     * (Android/data/[package]/files) can be read without any storage permission.
+     */
+    private static final String SYNTAX_IMPORT_FILE = "file://";
+
+    private static void showInvalidSyntaxToast(@NonNull String expression) {
+        Utils.showToastLong(str("revanced_custom_filter_toast_invalid_syntax", expression));
+    }
+
+    /**
+     * All rules with the same target and path.
+     */
+    private static final class Rule {
+        final boolean exception;
+        final boolean startsWith;
+        /**
+         * If any rule with this path has no buffer condition.
+         */
+        boolean unconditional;
+        /**
+         * Index of all buffer strings in {@link CompiledRules#bufferSearch}.
+         */
+        final BitSet bufferStrings = new BitSet();
+
+        Rule(boolean exception, boolean startsWith) {
+            this.exception = exception;
+            this.startsWith = startsWith;
+        }
+    }
+
+    /**
+     * State of a single search. Found buffer strings are only searched for
+     * once a rule with a buffer condition matches, and then at most once.
+     */
+    private static final class MatchState {
+        final CompiledRules rules;
+        final byte[] buffer;
+        @Nullable
+        BitSet foundBufferStrings;
+        boolean filtered;
+        boolean excepted;
+
+        MatchState(CompiledRules rules, byte[] buffer) {
+            this.rules = rules;
+            this.buffer = buffer;
+        }
+
+        boolean bufferContainsAny(BitSet bufferStrings) {
+            BitSet found = foundBufferStrings;
+            if (found == null) {
+                found = new BitSet(rules.bufferStringCount);
+                rules.bufferSearch.matches(buffer, found);
+                foundBufferStrings = found;
+            }
+            return found.intersects(bufferStrings);
+        }
+
+        /**
+         * @return If the search is finished.
+         */
+        boolean isComplete() {
+            return excepted || (filtered && !rules.hasExceptions);
+        }
+    }
+
+    private static final class CompiledRules {
+        static final CompiledRules EMPTY = new CompiledRules("");
+
+        /**
+         * Setting value these rules were compiled from.
+         */
+        final String source;
+        final StringTrieSearch pathSearch = new StringTrieSearch();
+        final StringTrieSearch identifierSearch = new StringTrieSearch();
+        final ByteTrieSearch bufferSearch = new ByteTrieSearch();
+        int bufferStringCount;
+        int ruleCount;
+        boolean hasExceptions;
+
+        CompiledRules(String source) {
+            this.source = source;
+        }
+
+        boolean matches(String path, @Nullable String identifier, byte[] buffer) {
+            if (ruleCount == 0) {
+                return false;
+            }
+
+            MatchState state = new MatchState(this, buffer);
+            if (identifier != null) {
+                identifierSearch.matches(identifier, state);
+            }
+            if (!state.isComplete()) {
+                pathSearch.matches(path, state);
+            }
+            return state.filtered && !state.excepted;
+        }
+    }
+
+    /**
+     * Parses rule text into a new {@link CompiledRules}.
+     */
+    private static final class RuleCompiler {
+        /**
+         * Key is the rule without the buffer string, including the optional syntax characters.
+         */
+        final Map<String, Rule> rules = new HashMap<>();
+        final Map<String, Integer> bufferStringIndexes = new HashMap<>();
+        final List<String> invalidExpressions = new ArrayList<>();
+        final CompiledRules compiled;
+
+        RuleCompiler(String source) {
+            compiled = new CompiledRules(source);
+        }
+
+        void addRules(String text, boolean allowImports) {
+            for (String expression : text.split("\n")) {
+                if (expression.isBlank() || expression.startsWith(SYNTAX_COMMENT)) continue;
+
+                if (expression.startsWith(SYNTAX_IMPORT_FILE)) {
+                    if (allowImports) {
+                        importFile(expression.substring(SYNTAX_IMPORT_FILE.length()).trim());
+                    } else {
+                        invalidExpressions.add(expression);
+                    }
+                    continue;
+                }
+
+                if (!addRule(expression)) {
+                    invalidExpressions.add(expression);
+                }
+            }
+        }
+
+        private void importFile(String filePath) {
+            StringBuilder builder = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(filePath), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    builder.append(line).append('\n');
+                }
+            } catch (IOException ex) {
+                Logger.printException(() -> "Could not import custom filter file: " + filePath, ex);
+                invalidExpressions.add(SYNTAX_IMPORT_FILE + filePath);
+                return;
+            }
+
+            // Imported files cannot import other files.
+            addRules(builder.toString(), false);
+        }
+
+        private boolean addRule(String expression) {
+            final String key;
+            final String bufferString;
+            final int bufferIndex = expression.indexOf(SYNTAX_BUFFER_SYMBOL);
+            if (bufferIndex < 0) {
+                key = expression;
+                bufferString = null;
+            } else {
+                key = expression.substring(0, bufferIndex);
+                bufferString = expression.substring(bufferIndex + 1);
+                if (bufferString.isBlank()) {
+                    return false;
+                }
+            }
+
+            String pattern = key;
+            final boolean exception = pattern.startsWith(SYNTAX_EXCEPTION);
+            if (exception) pattern = pattern.substring(SYNTAX_EXCEPTION.length());
+            final boolean identifier = pattern.startsWith(SYNTAX_IDENTIFIER);
+            if (identifier) pattern = pattern.substring(SYNTAX_IDENTIFIER.length());
+            final boolean startsWith = pattern.startsWith(SYNTAX_STARTS_WITH);
+            if (startsWith) pattern = pattern.substring(SYNTAX_STARTS_WITH.length());
+
+            if (pattern.isBlank()) {
+                return false;
+            }
+
+            // Use one rule object for all expressions with the same path.
+            // This ensures the path is added to the tree exactly once
+            // when multiple paths are used with different buffer strings.
+            Rule rule = rules.get(key);
+            if (rule == null) {
+                rule = new Rule(exception, startsWith);
+                rules.put(key, rule);
+                addRuleCallback(identifier ? compiled.identifierSearch : compiled.pathSearch, pattern, rule);
+                if (exception) compiled.hasExceptions = true;
+            }
+
+            if (bufferString == null) {
+                rule.unconditional = true;
+            } else {
+                rule.bufferStrings.set(getBufferStringIndex(bufferString));
+            }
+            compiled.ruleCount++;
+            return true;
+        }
+
+        private int getBufferStringIndex(String bufferString) {
+            Integer index = bufferStringIndexes.get(bufferString);
+            if (index == null) {
+                final int newIndex = compiled.bufferStringCount++;
+                compiled.bufferSearch.addPattern(bufferString.getBytes(StandardCharsets.UTF_8),
+                        (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                            ((BitSet) callbackParameter).set(newIndex);
+                            return false; // Find all buffer strings.
+                        });
+                index = newIndex;
+                bufferStringIndexes.put(bufferString, index);
+            }
+            return index;
+        }
+
+        private static void addRuleCallback(StringTrieSearch search, String pattern, Rule rule) {
+            search.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                if (rule.startsWith && matchedStartIndex != 0) {
+                    return false;
+                }
+                MatchState state = (MatchState) callbackParameter;
+                if (!rule.unconditional && !state.bufferContainsAny(rule.bufferStrings)) {
+                    return false;
+                }
+                if (rule.exception) {
+                    state.excepted = true;
+                } else {
+                    state.filtered = true;
+                }
+                // If exceptions are used, keep searching in case an exception also matches.
+                return state.isComplete();
+            });
+        }
+    }
+
+    private final BooleanSetting enabledSetting;
+    private final StringSetting rulesSetting;
+
+    /**
+     * Rules currently in use. Replaced as a whole, and never modified after being published.
+     */
+    private volatile CompiledRules compiledRules;
+
+    private final AtomicBoolean compiling = new AtomicBoolean();
+
+    public CustomFilterRuleEngine(@NonNull BooleanSetting enabledSetting, @NonNull StringSetting rulesSetting) {
+        this.enabledSetting = enabledSetting;
+        this.rulesSetting = rulesSetting;
+        // Compile the initial rules now, so they apply to the first components filtered.
+        compiledRules = enabledSetting.get()
+                ? compile(rulesSetting.get())
+                : CompiledRules.EMPTY;
+    }
+
+    /**
+     * Called off the main thread, and commonly called by multiple threads at the same time.
+     *
+     * @return If any rule matches, and no exception rule matches.
+     */
+    public boolean matches(@NonNull String path, @Nullable String identifier, @NonNull byte[] protobufBufferArray) {
+        if (!enabledSetting.get()) {
+            return false;
+        }
+        return getCompiledRules().matches(path, identifier, protobufBufferArray);
+    }
+
+    /**
+     * @return The current rules. If the setting has changed since the rules were compiled,
+     * the old rules are returned while the new rules compile in the background.
+     */
+    private CompiledRules getCompiledRules() {
+        CompiledRules rules = compiledRules;
+        String rulesText = rulesSetting.get();
+        //noinspection StringEquality
+        if (rules.source != rulesText && !rules.source.equals(rulesText)
+                && compiling.compareAndSet(false, true)) {
+            Utils.runOnBackgroundThread(ThreadLane.CPU, () -> {
+                try {
+                    compiledRules = compile(rulesText);
+                } finally {
+                    compiling.set(false);
+                }
+            });
+        }
+        return rules;
+    }
+
+    @NonNull
+    private static CompiledRules compile(@NonNull String rulesText) {
+        if (rulesText.isBlank()) {
+            return new CompiledRules(rulesText);
+        }
+
+        final long start = SystemClock.elapsedRealtime();
+        RuleCompiler compiler = new RuleCompiler(rulesText);
+        compiler.addRules(rulesText, true);
+        for (String expression : compiler.invalidExpressions) {
+            showInvalidSyntaxToast(expression);
+        }
+
+        CompiledRules compiled = compiler.compiled;
+        Logger.printDebug(() -> "Compiled " + compiled.ruleCount + " custom filter rules in "
+                + (SystemClock.elapsedRealtime() - start) + "ms ("
+                + compiled.pathSearch.numberOfPatterns() + " path, "
+                + compiled.identifierSearch.numberOfPatterns() + " identifier, "
+                + compiled.bufferStringCount + " buffer patterns)");
+        return compiled;
+    }
+}
@@ -0,0 +1,150 @@
+package app.revanced.extension.shared.patches.components;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import app.revanced.extension.shared.settings.BooleanSetting;
+import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.ThreadLane;
+import app.revanced.extension.shared.utils.Utils;
+
+/**
+ * A search structure with only the patterns of the filter groups that are enabled,
+ * so the cost of matching depends on the enabled patterns and not on all patterns.
+ * <p>
+ * When any boolean setting changes, the groups are checked again off the main thread.
+ * If a group was enabled or disabled, a new search is built and replaces the current search.
+ * Until then the current search is used, so callbacks must still check if their group is enabled.
+ * <p>
+ * Groups that are disabled when first searched, and require an app restart to change,
+ * are never included.
+ *
+ * @param <S> The search structure.
+ */
+final class EnabledGroupsSearch<S> {
+
+    interface SearchBuilder<S> {
+        /**
+         * @param included If each group is included, in the same order as the groups.
+         */
+        @NonNull
+        S build(boolean[] included);
+    }
+
+    private final List<? extends FilterGroup<?>> groups;
+    private final SearchBuilder<S> builder;
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    /**
+     * Groups excluded until the app restarts, in the same order as the groups.
+     */
+    private boolean[] excluded = new boolean[0];
+
+    @Nullable
+    private volatile S search;
+    private volatile boolean[] included;
+    private volatile int settingsChangeCount;
+
+    /**
+     * @param groups Groups of the search. Can be added to until the search is first used,
+     *               or after calling {@link #invalidate()}.
+     */
+    EnabledGroupsSearch(@NonNull List<? extends FilterGroup<?>> groups, @NonNull SearchBuilder<S> builder) {
+        this.groups = groups;
+        this.builder = builder;
+    }
+
+    /**
+     * Builds the search again the next time it is used.
+     */
+    synchronized void invalidate() {
+        search = null;
+    }
+
+    /**
+     * Called off the main thread, and commonly called by multiple threads at the same time.
+     *
+     * @return The current search. If a setting has changed since it was built,
+     * a new search is built in the background if needed.
+     */
+    @NonNull
+    S get() {
+        S current = search;
+        if (current == null) {
+            return buildNow();
+        }
+
+        if (settingsChangeCount != BooleanSetting.getChangeCount() && building.compareAndSet(false, true)) {
+            Utils.runOnBackgroundThread(ThreadLane.CPU, () -> {
+                try {
+                    rebuildIfChanged();
+                } finally {
+                    building.set(false);
+                }
+            });
+        }
+        return current;
+    }
+
+    @NonNull
+    private synchronized S buildNow() {
+        S current = search;
+        if (current != null) {
+            return current; // Thread race and another thread already built the search.
+        }
+
+        final int groupCount = groups.size();
+        final int previousCount = excluded.length;
+        excluded = Arrays.copyOf(excluded, groupCount);
+        for (int i = previousCount; i < groupCount; i++) {
+            excluded[i] = !groups.get(i).includeInSearch();
+        }
+
+        settingsChangeCount = BooleanSetting.getChangeCount();
+        boolean[] newIncluded = getIncluded();
+        current = builder.build(newIncluded);
+        included = newIncluded;
+        search = current;
+        return current;
+    }
+
+    private synchronized void rebuildIfChanged() {
+        if (search == null) {
+            return; // Built on the next use.
+        }
+
+        // Read before the settings, so a change while building causes another check.
+        settingsChangeCount = BooleanSetting.getChangeCount();
+        boolean[] newIncluded = getIncluded();
+        if (Arrays.equals(newIncluded, included)) {
+            return;
+        }
+
+        S newSearch = builder.build(newIncluded);
+        included = newIncluded;
+        search = newSearch;
+        Logger.printDebug(() -> "Rebuilt search of enabled filter groups: " + countIncluded(newIncluded)
+                + " of " + newIncluded.length + " groups");
+    }
+
+    private boolean[] getIncluded() {
+        final int groupCount = groups.size();
+        boolean[] newIncluded = new boolean[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            newIncluded[i] = !excluded[i] && groups.get(i).isEnabled();
+        }
+        return newIncluded;
+    }
+
+    private static int countIncluded(boolean[] included) {
+        int count = 0;
+        for (boolean include : included) {
+            if (include) count++;
+        }
+        return count;
+    }
+}
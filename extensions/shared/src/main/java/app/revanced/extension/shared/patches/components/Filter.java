@@ -22,6 +22,8 @@ import app.revanced.extension.shared.utils.Logger;
  * or a {@link ByteArrayFilterGroupList} (if searching for more than 1 pattern).
  * <p>
  * All callbacks must be registered before the constructor completes.
+ * Filters with patterns that can change while the app is running
+ * can instead override {@link #hasRuntimePatterns()}.
  */
 @SuppressWarnings("unused")
 public abstract class Filter {
@@ -103,4 +105,23 @@ public abstract class Filter {
         }
         return true;
     }
+
+    /**
+     * @return If this filter uses patterns that are not known when the filter is created,
+     * and {@link #isFilteredAtRuntime(String, String, byte[])} should be called for every component
+     * not already filtered by the callbacks.
+     */
+    public boolean hasRuntimePatterns() {
+        return false;
+    }
+
+    /**
+     * Called only if {@link #hasRuntimePatterns()} returns true.
+     * Method is called off the main thread.
+     *
+     * @return True if the litho component should be filtered out.
+     */
+    public boolean isFilteredAtRuntime(String path, @Nullable String identifier, byte[] protobufBufferArray) {
+        return false;
+    }
 }
@@ -19,18 +19,25 @@ import app.revanced.extension.shared.utils.TrieSearch;
 public abstract class FilterGroupList<V, T extends FilterGroup<V>> implements Iterable<T> {
 
     private final List<T> filterGroups = new ArrayList<>();
-    private final TrieSearch<V> search = createSearchGraph();
+    private final EnabledGroupsSearch<TrieSearch<V>> search =
+            new EnabledGroupsSearch<>(filterGroups, this::buildSearchGraph);
 
     @SafeVarargs
     public final void addAll(final T... groups) {
         filterGroups.addAll(Arrays.asList(groups));
+        search.invalidate();
+    }
 
-        for (T group : groups) {
-            if (!group.includeInSearch()) {
+    @NonNull
+    private TrieSearch<V> buildSearchGraph(boolean[] included) {
+        TrieSearch<V> searchGraph = createSearchGraph();
+        for (int i = 0, size = filterGroups.size(); i < size; i++) {
+            if (!included[i]) {
                 continue;
             }
+            T group = filterGroups.get(i);
             for (V pattern : group.filters) {
-                search.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                searchGraph.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
                     if (group.isEnabled()) {
                         FilterGroup.FilterGroupResult result = (FilterGroup.FilterGroupResult) callbackParameter;
                         result.setValues(group.setting, matchedStartIndex, matchedLength);
@@ -40,6 +47,7 @@ public abstract class FilterGroupList<V, T extends FilterGroup<V>> implements It
                 });
             }
         }
+        return searchGraph;
     }
 
     @NonNull
@@ -63,7 +71,7 @@ public abstract class FilterGroupList<V, T extends FilterGroup<V>> implements It
 
     public FilterGroup.FilterGroupResult check(V stack) {
         FilterGroup.FilterGroupResult result = new FilterGroup.FilterGroupResult();
-        search.matches(stack, result);
+        search.get().matches(stack, result);
         return result;
 
     }
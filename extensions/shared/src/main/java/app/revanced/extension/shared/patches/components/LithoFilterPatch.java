@@ -4,10 +4,12 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 import app.revanced.extension.shared.settings.BaseSettings;
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.StartupTrace;
 import app.revanced.extension.shared.utils.StringTrieSearch;
 
 @SuppressWarnings("unused")
@@ -79,9 +81,54 @@ public final class LithoFilterPatch {
             new DummyFilter() // Replaced by patch.
     };
 
-    private static final StringTrieSearch pathSearchTree = new StringTrieSearch();
-    private static final StringTrieSearch identifierSearchTree = new StringTrieSearch();
-    private static final StringTrieSearch allValueSearchTree = new StringTrieSearch();
+    /**
+     * A filter group, and the filter and content type it was added for.
+     */
+    private static final class FilterCallback {
+        final Filter filter;
+        final StringFilterGroup group;
+        final Filter.FilterContentType type;
+
+        FilterCallback(Filter filter, StringFilterGroup group, Filter.FilterContentType type) {
+            this.filter = filter;
+            this.group = group;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Search trees of the enabled filter groups.
+     */
+    private static final class SearchTrees {
+        final StringTrieSearch pathSearchTree = new StringTrieSearch();
+        final StringTrieSearch identifierSearchTree = new StringTrieSearch();
+        final StringTrieSearch allValueSearchTree = new StringTrieSearch();
+
+        SearchTrees(List<FilterCallback> callbacks, boolean[] included) {
+            for (int i = 0, size = callbacks.size(); i < size; i++) {
+                if (!included[i]) {
+                    continue;
+                }
+                FilterCallback callback = callbacks.get(i);
+                StringTrieSearch searchTree = switch (callback.type) {
+                    case IDENTIFIER -> identifierSearchTree;
+                    case PATH -> pathSearchTree;
+                    default -> allValueSearchTree;
+                };
+                filterUsingCallback(searchTree, callback);
+            }
+        }
+    }
+
+    private static final List<FilterCallback> filterCallbacks = new ArrayList<>();
+    private static final List<StringFilterGroup> filterCallbackGroups = new ArrayList<>();
+    private static final EnabledGroupsSearch<SearchTrees> searchTrees =
+            new EnabledGroupsSearch<>(filterCallbackGroups, included -> new SearchTrees(filterCallbacks, included));
+
+    /**
+     * Filters with patterns that can change at runtime, and are not part of the search trees.
+     */
+    private static final Filter[] runtimeFilters;
 
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
 
@@ -92,38 +139,49 @@ public final class LithoFilterPatch {
     private static final ThreadLocal<ByteBuffer> bufferThreadLocal = new ThreadLocal<>();
 
     static {
+        final long start = StartupTrace.begin("LithoFilterPatch");
+        List<Filter> runtime = new ArrayList<>();
         for (Filter filter : filters) {
-            filterUsingCallbacks(identifierSearchTree, filter,
-                    filter.identifierCallbacks, Filter.FilterContentType.IDENTIFIER);
-            filterUsingCallbacks(pathSearchTree, filter,
-                    filter.pathCallbacks, Filter.FilterContentType.PATH);
-            filterUsingCallbacks(allValueSearchTree, filter,
-                    filter.allValueCallbacks, Filter.FilterContentType.ALLVALUE);
+            addFilterCallbacks(filter, filter.identifierCallbacks, Filter.FilterContentType.IDENTIFIER);
+            addFilterCallbacks(filter, filter.pathCallbacks, Filter.FilterContentType.PATH);
+            addFilterCallbacks(filter, filter.allValueCallbacks, Filter.FilterContentType.ALLVALUE);
+            if (filter.hasRuntimePatterns()) {
+                runtime.add(filter);
+            }
         }
+        runtimeFilters = runtime.toArray(new Filter[0]);
 
+        // Build the trees of the enabled groups now, so the first components filtered do not wait.
+        SearchTrees trees = searchTrees.get();
         Logger.printDebug(() -> "Using: "
-                + identifierSearchTree.numberOfPatterns() + " identifier filters"
-                + " (" + identifierSearchTree.getEstimatedMemorySize() + " KB), "
-                + pathSearchTree.numberOfPatterns() + " path filters"
-                + " (" + pathSearchTree.getEstimatedMemorySize() + " KB)");
+                + trees.identifierSearchTree.numberOfPatterns() + " identifier filters"
+                + " (" + trees.identifierSearchTree.getEstimatedMemorySize() + " KB), "
+                + trees.pathSearchTree.numberOfPatterns() + " path filters"
+                + " (" + trees.pathSearchTree.getEstimatedMemorySize() + " KB) of "
+                + filterCallbacks.size() + " filter groups");
+        StartupTrace.end("LithoFilterPatch", start);
     }
 
-    private static void filterUsingCallbacks(StringTrieSearch pathSearchTree,
-                                             Filter filter, List<StringFilterGroup> groups,
-                                             Filter.FilterContentType type) {
+    private static void addFilterCallbacks(Filter filter, List<StringFilterGroup> groups,
+                                           Filter.FilterContentType type) {
         for (StringFilterGroup group : groups) {
-            if (!group.includeInSearch()) {
-                continue;
-            }
-            for (String pattern : group.filters) {
-                pathSearchTree.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
-                            if (!group.isEnabled()) return false;
-                            LithoFilterParameters parameters = (LithoFilterParameters) callbackParameter;
-                            return filter.isFiltered(parameters.path, parameters.identifier, parameters.allValue, parameters.protoBuffer,
-                                    group, type, matchedStartIndex);
-                        }
-                );
-            }
+            filterCallbacks.add(new FilterCallback(filter, group, type));
+            filterCallbackGroups.add(group);
+        }
+    }
+
+    private static void filterUsingCallback(StringTrieSearch searchTree, FilterCallback callback) {
+        final Filter filter = callback.filter;
+        final StringFilterGroup group = callback.group;
+        final Filter.FilterContentType type = callback.type;
+        for (String pattern : group.filters) {
+            searchTree.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                        if (!group.isEnabled()) return false;
+                        LithoFilterParameters parameters = (LithoFilterParameters) callbackParameter;
+                        return filter.isFiltered(parameters.path, parameters.identifier, parameters.allValue, parameters.protoBuffer,
+                                group, type, matchedStartIndex);
+                    }
+            );
         }
     }
 
@@ -165,17 +223,24 @@ public final class LithoFilterPatch {
                     object.toString(), bufferArray);
             Logger.printDebug(() -> "Searching " + parameter);
 
-            if (parameter.identifier != null && identifierSearchTree.matches(parameter.identifier, parameter)) {
+            SearchTrees trees = searchTrees.get();
+            if (parameter.identifier != null && trees.identifierSearchTree.matches(parameter.identifier, parameter)) {
                 return true;
             }
 
-            if (pathSearchTree.matches(parameter.path, parameter)) {
+            if (trees.pathSearchTree.matches(parameter.path, parameter)) {
                 return true;
             }
 
-            if (allValueSearchTree.matches(parameter.allValue, parameter)) {
+            if (trees.allValueSearchTree.matches(parameter.allValue, parameter)) {
                 return true;
             }
+
+            for (Filter filter : runtimeFilters) {
+                if (filter.isFilteredAtRuntime(parameter.path, parameter.identifier, parameter.protoBuffer)) {
+                    return true;
+                }
+            }
         } catch (Exception ex) {
             Logger.printException(() -> "Litho filter failure", ex);
         }
@@ -11,7 +11,10 @@ import android.text.style.LineHeightSpan;
 import android.text.style.TypefaceSpan;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import app.revanced.extension.shared.settings.BaseSettings;
@@ -38,7 +41,6 @@ public final class InclusiveSpanPatch {
         final int start;
         final int end;
         final int flags;
-        final String originalString;
         final int originalLength;
         final SpanType spanType;
         final boolean isWord;
@@ -51,7 +53,6 @@ public final class InclusiveSpanPatch {
             this.start = start;
             this.end = end;
             this.flags = flags;
-            this.originalString = spannableString.toString();
             this.originalLength = spannableString.length();
             this.spanType = getSpanType(span);
             this.isWord = !(start == 0 && end == originalLength);
@@ -60,6 +61,8 @@ public final class InclusiveSpanPatch {
         @NonNull
         @Override
         public String toString() {
+            // Only used for logging, so the string is not created unless needed.
+            final String originalString = spannableString.toString();
             StringBuilder builder = new StringBuilder();
             builder.append("CharSequence:'")
                     .append(originalString)
@@ -115,12 +118,54 @@ public final class InclusiveSpanPatch {
 
     private static final StringTrieSearch searchTree = new StringTrieSearch();
 
+    /**
+     * A filter group found in a conversion context.
+     */
+    private static final class MatchedFilter {
+        final Filter filter;
+        final StringFilterGroup group;
+
+        MatchedFilter(Filter filter, StringFilterGroup group) {
+            this.filter = filter;
+            this.group = group;
+        }
+    }
+
+    /**
+     * Filters found in a conversion context.
+     * <p>
+     * A text can have dozens of spans, and all of them use the same conversion context.
+     * The context is searched once when the first span is set,
+     * and texts with no matching filters then return without any more work.
+     */
+    private static final class ConversionContextMatches {
+        final String conversionContext;
+        @Nullable
+        private List<MatchedFilter> matches;
+
+        ConversionContextMatches(String conversionContext) {
+            this.conversionContext = conversionContext;
+        }
+
+        List<MatchedFilter> getMatches() {
+            List<MatchedFilter> found = matches;
+            if (found == null) {
+                found = new ArrayList<>(1);
+                searchTree.matches(conversionContext, found);
+                if (found.isEmpty()) {
+                    found = Collections.emptyList();
+                }
+                matches = found;
+            }
+            return found;
+        }
+    }
 
     /**
      * Because litho filtering is multi-threaded and the buffer is passed in from a different injection point,
      * the buffer is saved to a ThreadLocal so each calling thread does not interfere with other threads.
      */
-    private static final ThreadLocal<String> conversionContextThreadLocal = new ThreadLocal<>();
+    private static final ThreadLocal<ConversionContextMatches> conversionContextThreadLocal = new ThreadLocal<>();
 
     static {
         for (Filter filter : filters) {
@@ -139,12 +184,15 @@ public final class InclusiveSpanPatch {
             if (!group.includeInSearch()) {
                 continue;
             }
+            MatchedFilter matchedFilter = new MatchedFilter(filter, group);
             for (String pattern : group.filters) {
                 InclusiveSpanPatch.searchTree.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
-                            if (!group.isEnabled()) return false;
-                            LithoFilterParameters parameters = (LithoFilterParameters) callbackParameter;
-                            return filter.skip(parameters.conversionContext, parameters.spannableString, parameters.span,
-                                    parameters.start, parameters.end, parameters.flags, parameters.isWord, parameters.spanType, group);
+                            //noinspection unchecked
+                            List<MatchedFilter> found = (List<MatchedFilter>) callbackParameter;
+                            if (!found.contains(matchedFilter)) {
+                                found.add(matchedFilter);
+                            }
+                            return false; // Find all filters.
                         }
                 );
             }
@@ -158,25 +206,41 @@ public final class InclusiveSpanPatch {
      */
     public static CharSequence setConversionContext(@NonNull Object conversionContext,
                                                     @NonNull CharSequence original) {
-        conversionContextThreadLocal.set(conversionContext.toString());
+        final String context = conversionContext.toString();
+        // Keep the previous search result if the same context is set again.
+        ConversionContextMatches current = conversionContextThreadLocal.get();
+        if (current == null || !current.conversionContext.equals(context)) {
+            conversionContextThreadLocal.set(new ConversionContextMatches(context));
+        }
         return original;
     }
 
     private static boolean returnEarly(SpannableString spannableString, Object span, int start, int end, int flags) {
         try {
-            final String conversionContext = conversionContextThreadLocal.get();
-            if (conversionContext == null || conversionContext.isEmpty()) {
+            final ConversionContextMatches context = conversionContextThreadLocal.get();
+            if (context == null || context.conversionContext.isEmpty()) {
+                return false;
+            }
+
+            final boolean debugLogging = BaseSettings.ENABLE_DEBUG_BUFFER_LOGGING.get();
+            final List<MatchedFilter> matches = context.getMatches();
+            if (matches.isEmpty() && !debugLogging) {
                 return false;
             }
 
             LithoFilterParameters parameter =
-                    new LithoFilterParameters(conversionContext, spannableString, span, start, end, flags);
+                    new LithoFilterParameters(context.conversionContext, spannableString, span, start, end, flags);
 
-            if (BaseSettings.ENABLE_DEBUG_BUFFER_LOGGING.get()) {
+            if (debugLogging) {
                 Logger.printDebug(() -> "Searching...\n\u200B\n" + parameter);
             }
 
-            return searchTree.matches(parameter.conversionContext, parameter);
+            for (MatchedFilter match : matches) {
+                if (match.group.isEnabled() && match.filter.skip(parameter.conversionContext, spannableString, span,
+                        start, end, flags, parameter.isWord, parameter.spanType, match.group)) {
+                    return true;
+                }
+            }
         } catch (Exception ex) {
             Logger.printException(() -> "Spans filter failure", ex);
         }
@@ -8,6 +8,7 @@ import app.revanced.extension.shared.innertube.requests.InnerTubeRoutes.GET_STRE
 import app.revanced.extension.shared.settings.BaseSettings
 import app.revanced.extension.shared.utils.Logger
 import app.revanced.extension.shared.utils.StringRef.str
+import app.revanced.extension.shared.utils.ThreadLane
 import app.revanced.extension.shared.utils.Utils
 import java.io.BufferedInputStream
 import java.io.ByteArrayOutputStream
@@ -41,7 +42,8 @@ class StreamingDataRequest private constructor(
     init {
         Objects.requireNonNull(requestHeader)
         this.videoId = videoId
-        this.future = Utils.submitOnBackgroundThread {
+        // The player waits for this fetch, so it must not queue behind other network calls.
+        this.future = Utils.submitOnBackgroundThread(ThreadLane.PLAYBACK) {
             fetch(
                 videoId,
                 requestHeader,
@@ -25,6 +25,7 @@ import java.util.concurrent.TimeoutException;
 
 import app.revanced.extension.shared.requests.Requester;
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.MetadataStore;
 import app.revanced.extension.shared.utils.Utils;
 
 public class ChannelRequest {
@@ -106,15 +107,25 @@ public class ChannelRequest {
     }
 
     private static String fetch(@NonNull String handle, @NonNull String apiKey, Boolean userNameFirst) {
+        // Channel may already be known from a video or a previous fetch that was removed from the cache.
+        final String knownUserName = MetadataStore.getChannelNameForHandle(handle);
+        if (knownUserName != null) {
+            return authorBadgeBuilder(handle, knownUserName, userNameFirst);
+        }
+
         final JSONObject channelJsonObject = send(handle, apiKey);
         if (channelJsonObject != null) {
             try {
-                final String userName = channelJsonObject
+                final JSONObject channelItem = channelJsonObject
                         .getJSONArray("items")
-                        .getJSONObject(0)
+                        .getJSONObject(0);
+                final String userName = channelItem
                         .getJSONObject("brandingSettings")
                         .getJSONObject("channel")
                         .getString("title");
+                final String channelId = channelItem.optString("id");
+                MetadataStore.putChannelName(channelId, userName);
+                MetadataStore.putChannelHandle(channelId, handle);
                 return authorBadgeBuilder(handle, userName, userNameFirst);
             } catch (JSONException e) {
                 Logger.printDebug(() -> "Fetch failed while processing response data for response: " + channelJsonObject);
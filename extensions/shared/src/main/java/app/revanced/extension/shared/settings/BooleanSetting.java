@@ -7,9 +7,29 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("unused")
 public class BooleanSetting extends Setting<Boolean> {
+    /**
+     * Incremented every time the value of any boolean setting is set.
+     */
+    private static final AtomicInteger changeCount = new AtomicInteger();
+
+    /**
+     * Used by code that caches state derived from boolean settings, to check if any boolean setting
+     * has changed with a single read instead of reading every setting.
+     *
+     * @return A number that changes every time the value of any boolean setting is set.
+     */
+    public static int getChangeCount() {
+        return changeCount.get();
+    }
+
+    private static void onValueChanged() {
+        changeCount.incrementAndGet();
+    }
+
     public BooleanSetting(String key, Boolean defaultValue) {
         super(key, defaultValue);
     }
@@ -55,11 +75,13 @@ public class BooleanSetting extends Setting<Boolean> {
      */
     public static void privateSetValue(@NonNull BooleanSetting setting, @NonNull Boolean newValue) {
         setting.value = Objects.requireNonNull(newValue);
+        onValueChanged();
     }
 
     @Override
     protected void load() {
         value = preferences.getBoolean(key, defaultValue);
+        onValueChanged();
     }
 
     @Override
@@ -70,12 +92,14 @@ public class BooleanSetting extends Setting<Boolean> {
     @Override
     protected void setValueFromString(@NonNull String newValue) {
         value = Boolean.valueOf(Objects.requireNonNull(newValue));
+        onValueChanged();
     }
 
     @Override
     public void save(@NonNull Boolean newValue) {
         // Must set before saving to preferences (otherwise importing fails to update UI correctly).
         value = Objects.requireNonNull(newValue);
+        onValueChanged();
         preferences.saveBoolean(key, newValue);
     }
 
@@ -0,0 +1,65 @@
+package app.revanced.extension.shared.sponsorblock;
+
+import android.os.SystemClock;
+
+/**
+ * Video time between playback time updates.
+ * <p>
+ * Playback time updates arrive at irregular intervals. Each update is kept with the
+ * {@link SystemClock#uptimeMillis()} it was received, so the time playback reaches a
+ * segment boundary is found from the last known position and the playback speed,
+ * instead of from the update that first found the segment.
+ * <p>
+ * Class is not thread safe. All methods must be called on the main thread.
+ */
+public final class PlaybackClock {
+    /**
+     * Difference between the reported and the expected video time that is treated as a seek.
+     * Larger than the usual jitter of the reported video time.
+     */
+    private static final long DISCONTINUITY_THRESHOLD_MILLISECONDS = 500;
+
+    private boolean hasPosition;
+    private long positionVideoTime;
+    private long positionUptime;
+    private float positionPlaybackSpeed = 1;
+
+    /**
+     * Sets the last known position.
+     *
+     * @return If the video time is not where playback was expected to be,
+     * because the user seeked, or playback was paused or stalled.
+     */
+    public boolean update(long videoTime, float playbackSpeed) {
+        if (playbackSpeed <= 0) {
+            playbackSpeed = 1;
+        }
+        final long now = SystemClock.uptimeMillis();
+        final boolean discontinuity = hasPosition && playbackSpeed == positionPlaybackSpeed
+                && Math.abs(videoTime - getVideoTimeAt(now)) > DISCONTINUITY_THRESHOLD_MILLISECONDS;
+
+        hasPosition = true;
+        positionVideoTime = videoTime;
+        positionUptime = now;
+        positionPlaybackSpeed = playbackSpeed;
+        return discontinuity;
+    }
+
+    public void reset() {
+        hasPosition = false;
+    }
+
+    /**
+     * @return The video time at the uptime, if playback continues at the current speed.
+     */
+    public long getVideoTimeAt(long uptimeMillis) {
+        return positionVideoTime + (long) ((uptimeMillis - positionUptime) * positionPlaybackSpeed);
+    }
+
+    /**
+     * @return The uptime playback reaches the video time, if playback continues at the current speed.
+     */
+    public long getUptimeAt(long videoTime) {
+        return positionUptime + (long) ((videoTime - positionVideoTime) / positionPlaybackSpeed);
+    }
+}
@@ -0,0 +1,95 @@
+package app.revanced.extension.shared.sponsorblock;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Segment bar drawn over the seekbar, rendered once into a bitmap.
+ * <p>
+ * Segment positions only change when the segments, the seekbar width, the bar thickness
+ * or the category colors change. Until then each seekbar frame draws only the bitmap,
+ * instead of one rectangle per segment.
+ * <p>
+ * Class is not thread safe. All methods must be called on the main thread.
+ */
+public final class SegmentBarOverlay {
+
+    public interface Renderer {
+        /**
+         * Draws all segments. The left of the seekbar is x = 0 and the top of the bar is y = 0.
+         *
+         * @param videoMillisecondsToPixels Pixel width of one millisecond of video.
+         * @param bottom                    Bottom of the bar.
+         */
+        void render(@NonNull Canvas canvas, float videoMillisecondsToPixels, float bottom);
+    }
+
+    @NonNull
+    private final Renderer renderer;
+
+    @Nullable
+    private Bitmap bitmap;
+    @Nullable
+    private Canvas bitmapCanvas;
+
+    private boolean valid;
+    private int renderedBarWidth;
+    private int renderedThickness;
+    private long renderedVideoLength;
+    private int renderedPaintVersion;
+
+    public SegmentBarOverlay(@NonNull Renderer renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Must be called when the segments change.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Draws the segment bar, and first renders it again if anything has changed.
+     *
+     * @param posY          Vertical center of the bar.
+     * @param overflowWidth Pixels segments can be drawn past the right of the seekbar.
+     * @param paintVersion  Changes when any segment color changes.
+     */
+    public void draw(@NonNull Canvas canvas, float posY, int barLeft, int barRight, int thickness,
+                     int overflowWidth, long videoLength, int paintVersion) {
+        final int barWidth = barRight - barLeft;
+        if (barWidth <= 0 || thickness <= 0 || videoLength <= 0) {
+            return;
+        }
+
+        if (!valid || barWidth != renderedBarWidth || thickness != renderedThickness
+                || videoLength != renderedVideoLength || paintVersion != renderedPaintVersion) {
+            render(barWidth + overflowWidth, thickness, (1f / videoLength) * barWidth);
+            valid = true;
+            renderedBarWidth = barWidth;
+            renderedThickness = thickness;
+            renderedVideoLength = videoLength;
+            renderedPaintVersion = paintVersion;
+        }
+
+        final int thicknessDiv2 = thickness / 2; // rounds down
+        canvas.drawBitmap(bitmap, barLeft, posY - (thickness - thicknessDiv2), null);
+    }
+
+    private void render(int width, int height, float videoMillisecondsToPixels) {
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            // The old bitmap is not recycled, as a display list may still reference it.
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmapCanvas = new Canvas(bitmap);
+        } else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        renderer.render(bitmapCanvas, videoMillisecondsToPixels, height);
+    }
+}
@@ -0,0 +1,428 @@
+package app.revanced.extension.shared.sponsorblock;
+
+import android.graphics.Canvas;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+import app.revanced.extension.shared.sponsorblock.objects.BaseSponsorSegment;
+import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.MainThreadDispatcher;
+
+/**
+ * Segments of the current video, shared by the YouTube and YouTube Music playback controllers.
+ * <p>
+ * Holds the sorted segments with their {@link SegmentTimeIndex} and {@link SegmentBarOverlay},
+ * finds the segment to skip, show or schedule for a video time,
+ * and runs the scheduled segments at the time playback reaches them using a {@link PlaybackClock}.
+ * Segments of videos that are not yet opened are prefetched with a {@link SegmentPrefetchCache}.
+ * Showing, hiding and skipping is left to the playback controller of each app,
+ * and app specific segment handling is done by an {@link Adapter}.
+ * <p>
+ * Finding segments does not allocate, so it can be called on every playback update.
+ * Class is not thread safe. All methods must be called on the main thread unless otherwise specified.
+ */
+public final class SegmentEngine<S extends BaseSponsorSegment> {
+
+    public interface Adapter<S extends BaseSponsorSegment> {
+        /**
+         * @return If the segment can be skipped or shown during playback.
+         * Segments that are only drawn on the seekbar return false.
+         */
+        boolean isPlaybackSegment(@NonNull S segment);
+
+        /**
+         * Draws one segment. The left of the seekbar is x = 0 and the top of the bar is y = 0.
+         */
+        void drawSegment(@NonNull Canvas canvas, @NonNull S segment, float videoMillisecondsToPixels, float bottom);
+
+        /**
+         * Called off the main thread, to prefetch segments.
+         * Connection errors must only be logged, as the video may never be opened.
+         *
+         * @return The segments of the video, or NULL if the segments could not be fetched.
+         */
+        @Nullable
+        S[] fetchSegments(@NonNull String videoId);
+
+        /**
+         * Playback reached the end of a segment scheduled with {@link #scheduleSegments}.
+         *
+         * @param speedAdjustedTimeThreshold The threshold the segment was scheduled with.
+         */
+        void onScheduledHide(@NonNull S segment, long speedAdjustedTimeThreshold);
+
+        /**
+         * Playback reached the start of a segment scheduled with {@link #scheduleSegments}.
+         *
+         * @param speedAdjustedTimeThreshold The threshold the segment was scheduled with.
+         */
+        void onScheduledUpcoming(@NonNull S segment, long speedAdjustedTimeThreshold);
+    }
+
+    /**
+     * Result of {@link #findSegments(long, long, BaseSponsorSegment, FoundSegments)}.
+     * Reused between calls.
+     */
+    public static final class FoundSegments<S extends BaseSponsorSegment> {
+        /**
+         * Playing segment that must be skipped now. If set, the other fields are not set.
+         */
+        @Nullable
+        public S segmentToSkip;
+        /**
+         * Playing segment to show the skip button for.
+         */
+        @Nullable
+        public S segmentCurrentlyPlaying;
+        /**
+         * Upcoming segment to schedule a skip or show for.
+         */
+        @Nullable
+        public S upcomingSegment;
+
+        private void clear() {
+            segmentToSkip = null;
+            segmentCurrentlyPlaying = null;
+            upcomingSegment = null;
+        }
+    }
+
+    /**
+     * Do not show a playing segment that was not already showing, if the segment is this close to ending.
+     */
+    private static final long MIN_MILLIS_OF_SEGMENT_REMAINING_THRESHOLD = 800;
+
+    /**
+     * Do not schedule an upcoming segment that starts this close to the end of the playing segment.
+     */
+    private static final long MIN_TIME_BETWEEN_START_END_OF_SEGMENTS = 1000;
+
+    /**
+     * How far the expected time playback reaches a scheduled segment can move
+     * before the scheduled task is moved to the new time.
+     */
+    private static final long SCHEDULED_TASK_DEADLINE_TOLERANCE = 10;
+
+    @NonNull
+    private final Adapter<S> adapter;
+    @NonNull
+    private final SegmentBarOverlay segmentBarOverlay;
+    @NonNull
+    private final SegmentPrefetchCache<S> prefetchCache;
+
+    /**
+     * Position of playback, used to schedule tasks at the exact time playback reaches a segment.
+     */
+    private final PlaybackClock playbackClock = new PlaybackClock();
+    /**
+     * Currently playing manual skip segment that is scheduled to hide.
+     */
+    @Nullable
+    private S scheduledHideSegment;
+    /**
+     * Pending main thread task that hides {@link #scheduledHideSegment}.
+     */
+    @Nullable
+    private MainThreadDispatcher.ScheduledTask scheduledHideTask;
+    /**
+     * Upcoming segment that is scheduled to either autoskip or show the manual skip button.
+     */
+    @Nullable
+    private S scheduledUpcomingSegment;
+    /**
+     * Pending main thread task that skips or shows {@link #scheduledUpcomingSegment}.
+     */
+    @Nullable
+    private MainThreadDispatcher.ScheduledTask scheduledUpcomingTask;
+    /**
+     * Uptime {@link #scheduledHideTask} and {@link #scheduledUpcomingTask} are scheduled to run.
+     */
+    private long scheduledHideUptime;
+    private long scheduledUpcomingUptime;
+
+    @Nullable
+    private S[] segments;
+    /**
+     * Index of {@link #segments}. Non-null if and only if the segments are non-null.
+     */
+    @Nullable
+    private SegmentTimeIndex timeIndex;
+
+    public SegmentEngine(@NonNull Adapter<S> adapter) {
+        this.adapter = adapter;
+        this.segmentBarOverlay = new SegmentBarOverlay(this::renderSegmentBar);
+        this.prefetchCache = new SegmentPrefetchCache<>(adapter::fetchSegments);
+    }
+
+    @Nullable
+    public S[] getSegments() {
+        return segments;
+    }
+
+    public boolean hasSegments() {
+        return segments != null && segments.length > 0;
+    }
+
+    /**
+     * Sorts the segments and builds the time index.
+     */
+    public void setSegments(@NonNull S[] videoSegments) {
+        Arrays.sort(videoSegments);
+        final int length = videoSegments.length;
+        long[] starts = new long[length];
+        long[] ends = new long[length];
+        for (int i = 0; i < length; i++) {
+            starts[i] = videoSegments[i].start;
+            ends[i] = videoSegments[i].end;
+        }
+
+        segments = videoSegments;
+        timeIndex = new SegmentTimeIndex(starts, ends);
+        segmentBarOverlay.invalidate();
+    }
+
+    /**
+     * Clears the segments, and cancels all scheduled segments.
+     */
+    public void clear() {
+        segments = null;
+        timeIndex = null;
+        segmentBarOverlay.invalidate();
+        clearScheduledSegments();
+        playbackClock.reset();
+    }
+
+    /**
+     * Starts fetching the segments of a video that is not yet opened, if not already fetched.
+     * Can be called from any thread.
+     */
+    public void prefetch(@NonNull String videoId) {
+        prefetchCache.prefetch(videoId);
+    }
+
+    /**
+     * Removes the prefetch of a video and waits for it to complete.
+     * Must be called off the main thread.
+     *
+     * @return The prefetched segments, or NULL if the video was not prefetched,
+     * the prefetch has expired, or the prefetch failed.
+     */
+    @Nullable
+    public S[] takePrefetchedSegments(@NonNull String videoId) {
+        return prefetchCache.takeSegments(videoId);
+    }
+
+    /**
+     * Sets the last known playback position.
+     * If playback jumped, because the user seeked or playback was paused or stalled,
+     * the scheduled segments are cancelled as they were scheduled for where playback was expected to be.
+     */
+    public void updatePlaybackPosition(long millis, float playbackSpeed) {
+        if (playbackClock.update(millis, playbackSpeed)) {
+            Logger.printDebug(() -> "Playback time jumped, clearing scheduled segments");
+            clearScheduledSegments();
+        }
+    }
+
+    /**
+     * Schedules the segments to run at the exact time playback reaches them.
+     * A segment that is already scheduled is only moved if the time playback reaches it has changed,
+     * and a scheduled segment that is no longer passed in is cancelled.
+     *
+     * @param segmentToHide              Playing segment to hide at its end, or NULL.
+     * @param upcomingSegment            Upcoming segment to skip or show at its start, or NULL.
+     * @param speedAdjustedTimeThreshold Passed to the {@link Adapter} when the segment is run.
+     */
+    public void scheduleSegments(@Nullable S segmentToHide, @Nullable S upcomingSegment, long speedAdjustedTimeThreshold) {
+        if (scheduledHideSegment != segmentToHide) {
+            if (segmentToHide == null) {
+                Logger.printDebug(() -> "Clearing scheduled hide: " + scheduledHideSegment);
+                clearScheduledHideSegment();
+            } else {
+                clearScheduledHideSegment();
+                scheduledHideSegment = segmentToHide;
+                Logger.printDebug(() -> "Scheduling hide segment: " + segmentToHide);
+                scheduleHideSegment(segmentToHide, speedAdjustedTimeThreshold);
+            }
+        } else if (segmentToHide != null && deadlineHasMoved(segmentToHide.end, scheduledHideUptime)) {
+            scheduleHideSegment(segmentToHide, speedAdjustedTimeThreshold);
+        }
+
+        if (scheduledUpcomingSegment != upcomingSegment) {
+            if (upcomingSegment == null) {
+                Logger.printDebug(() -> "Clearing scheduled segment: " + scheduledUpcomingSegment);
+                clearScheduledUpcomingSegment();
+            } else {
+                clearScheduledUpcomingSegment();
+                scheduledUpcomingSegment = upcomingSegment;
+                Logger.printDebug(() -> "Scheduling segment: " + upcomingSegment);
+                scheduleUpcomingSegment(upcomingSegment, speedAdjustedTimeThreshold);
+            }
+        } else if (upcomingSegment != null && deadlineHasMoved(upcomingSegment.start, scheduledUpcomingUptime)) {
+            scheduleUpcomingSegment(upcomingSegment, speedAdjustedTimeThreshold);
+        }
+    }
+
+    /**
+     * Cancels the pending tasks, so a stale skip, show or hide never runs after playback has moved on.
+     */
+    public void clearScheduledSegments() {
+        clearScheduledHideSegment();
+        clearScheduledUpcomingSegment();
+    }
+
+    /**
+     * @return If the uptime playback reaches the video time has moved since the task was scheduled.
+     */
+    private boolean deadlineHasMoved(long videoTime, long scheduledUptime) {
+        return Math.abs(playbackClock.getUptimeAt(videoTime) - scheduledUptime) > SCHEDULED_TASK_DEADLINE_TOLERANCE;
+    }
+
+    private void scheduleHideSegment(@NonNull S segmentToHide, long speedAdjustedTimeThreshold) {
+        MainThreadDispatcher.cancel(scheduledHideTask);
+        scheduledHideUptime = playbackClock.getUptimeAt(segmentToHide.end);
+        scheduledHideTask = MainThreadDispatcher.postAtTime(() -> {
+            scheduledHideTask = null;
+            scheduledHideSegment = null;
+            adapter.onScheduledHide(segmentToHide, speedAdjustedTimeThreshold);
+        }, scheduledHideUptime);
+    }
+
+    private void scheduleUpcomingSegment(@NonNull S upcomingSegment, long speedAdjustedTimeThreshold) {
+        MainThreadDispatcher.cancel(scheduledUpcomingTask);
+        scheduledUpcomingUptime = playbackClock.getUptimeAt(upcomingSegment.start);
+        scheduledUpcomingTask = MainThreadDispatcher.postAtTime(() -> {
+            scheduledUpcomingTask = null;
+            scheduledUpcomingSegment = null;
+            adapter.onScheduledUpcoming(upcomingSegment, speedAdjustedTimeThreshold);
+        }, scheduledUpcomingUptime);
+    }
+
+    private void clearScheduledHideSegment() {
+        scheduledHideTask = MainThreadDispatcher.cancel(scheduledHideTask);
+        scheduledHideSegment = null;
+    }
+
+    private void clearScheduledUpcomingSegment() {
+        scheduledUpcomingTask = MainThreadDispatcher.cancel(scheduledUpcomingTask);
+        scheduledUpcomingSegment = null;
+    }
+
+    /**
+     * @return {@link SegmentTimeIndex#getInterval(long)} of the video time, or -1 if there are no segments.
+     */
+    public int getInterval(long millis) {
+        return timeIndex == null ? -1 : timeIndex.getInterval(millis);
+    }
+
+    /**
+     * Finds the segments for the video time.
+     *
+     * @param lookAheadMillis         How far ahead of the video time to look for upcoming segments.
+     * @param segmentCurrentlyPlaying The segment currently shown, which is kept even if it's nearly over.
+     * @param result                  Set to the segments found.
+     */
+    public void findSegments(long millis, long lookAheadMillis, @Nullable S segmentCurrentlyPlaying,
+                             @NonNull FoundSegments<S> result) {
+        result.clear();
+        final S[] currentSegments = segments;
+        final SegmentTimeIndex currentTimeIndex = timeIndex;
+        if (currentSegments == null || currentTimeIndex == null) {
+            return;
+        }
+
+        S foundSegmentCurrentlyPlaying = null;
+        S foundUpcomingSegment = null;
+
+        // Segments containing the current time, in start order.
+        for (final int segmentIndex : currentTimeIndex.getSegmentsContaining(millis)) {
+            final S segment = currentSegments[segmentIndex];
+            if (!adapter.isPlaybackSegment(segment)) {
+                continue;
+            }
+
+            // we are in the segment!
+            if (segment.shouldAutoSkip()) {
+                result.segmentToSkip = segment;
+                return;
+            }
+
+            // first found segment, or it's an embedded segment and fully inside the outer segment
+            if (foundSegmentCurrentlyPlaying == null || foundSegmentCurrentlyPlaying.containsSegment(segment)) {
+                // If the found segment is not currently displayed, then do not show if the segment is nearly over.
+                // This check prevents the skip button text from rapidly changing when multiple segments end at nearly the same time.
+                // Also prevents showing the skip button if user seeks into the last 800ms of the segment.
+                if (segmentCurrentlyPlaying == segment
+                        || !segment.endIsNear(millis, MIN_MILLIS_OF_SEGMENT_REMAINING_THRESHOLD)) {
+                    foundSegmentCurrentlyPlaying = segment;
+                } else {
+                    Logger.printDebug(() -> "Ignoring segment that ends very soon: " + segment);
+                }
+            }
+            // Keep looking. There may be another smaller segment nested inside this segment,
+            // or there may be an upcoming autoskip
+        }
+
+        // Upcoming segments, in start order.
+        final long startTimerLookAheadThreshold = millis + lookAheadMillis;
+        for (int i = currentTimeIndex.getFirstSegmentStartingAfter(millis), length = currentSegments.length; i < length; i++) {
+            final S segment = currentSegments[i];
+            if (!adapter.isPlaybackSegment(segment)) {
+                continue;
+            }
+
+            if (startTimerLookAheadThreshold < segment.start) {
+                break; // segment is not close enough to schedule, and no segments after this are of interest
+            }
+            if (segment.shouldAutoSkip()) { // upcoming autoskip
+                foundUpcomingSegment = segment;
+                break; // must stop here
+            }
+
+            // upcoming manual skip
+
+            // do not schedule upcoming segment, if it is not fully contained inside the current segment
+            if ((foundSegmentCurrentlyPlaying == null || foundSegmentCurrentlyPlaying.containsSegment(segment))
+                    // use the most inner upcoming segment
+                    && (foundUpcomingSegment == null || foundUpcomingSegment.containsSegment(segment))) {
+
+                // Only schedule, if the segment start time is not near the end time of the current segment.
+                // This check is needed to prevent scheduled hide and show from clashing with each other.
+                // Instead the upcoming segment will be handled when the current segment scheduled hide calls back into this method.
+                if (foundSegmentCurrentlyPlaying == null
+                        || !foundSegmentCurrentlyPlaying.endIsNear(segment.start, MIN_TIME_BETWEEN_START_END_OF_SEGMENTS)) {
+                    foundUpcomingSegment = segment;
+                } else {
+                    Logger.printDebug(() -> "Not scheduling segment (start time is near end of current segment): " + segment);
+                }
+            }
+        }
+
+        result.segmentCurrentlyPlaying = foundSegmentCurrentlyPlaying;
+        result.upcomingSegment = foundUpcomingSegment;
+    }
+
+    /**
+     * Draws all segments over the seekbar. See {@link SegmentBarOverlay#draw}.
+     */
+    public void drawSegmentBar(@NonNull Canvas canvas, float posY, int barLeft, int barRight, int thickness,
+                               int overflowWidth, long videoLength, int paintVersion) {
+        if (segments == null) {
+            return;
+        }
+        segmentBarOverlay.draw(canvas, posY, barLeft, barRight, thickness, overflowWidth, videoLength, paintVersion);
+    }
+
+    private void renderSegmentBar(@NonNull Canvas canvas, float videoMillisecondsToPixels, float bottom) {
+        final S[] currentSegments = segments;
+        if (currentSegments == null) {
+            return;
+        }
+        for (S segment : currentSegments) {
+            adapter.drawSegment(canvas, segment, videoMillisecondsToPixels, bottom);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package app.revanced.extension.shared.sponsorblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import app.revanced.extension.shared.sponsorblock.objects.BaseSponsorSegment;
+import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.ThreadLane;
+import app.revanced.extension.shared.utils.Utils;
+
+/**
+ * Segments fetched before a video starts playing.
+ * <p>
+ * The player response of a video is loaded before the video is opened,
+ * and for autoplay and playlists the next video is loaded while the current video is still playing.
+ * Fetching the segments at that time means the segments are usually available
+ * when the video starts, and segments at the start of the video are not missed.
+ * <p>
+ * Each prefetch is used at most once, since segments keep their skip state.
+ * Class is thread safe.
+ */
+final class SegmentPrefetchCache<S extends BaseSponsorSegment> {
+
+    interface Fetcher<S extends BaseSponsorSegment> {
+        /**
+         * Called off the main thread.
+         *
+         * @return The segments of the video, or NULL if the segments could not be fetched.
+         */
+        @Nullable
+        S[] fetchSegments(@NonNull String videoId);
+    }
+
+    /**
+     * How long a prefetch can be used.  Segments can be added or voted on after the fetch.
+     */
+    private static final long CACHE_TIMEOUT_MILLISECONDS = 5 * 60 * 1000; // 5 Minutes
+
+    /**
+     * Most prefetches to keep.  Videos that are loaded but never opened are removed oldest first.
+     */
+    private static final int MAX_CACHED_PREFETCHES = 10;
+
+    /**
+     * How long to wait for a prefetch that has not completed.
+     * Longer than the request timeouts, so this only ends a fetch that is stuck.
+     */
+    private static final long MAX_MILLISECONDS_TO_WAIT_FOR_PREFETCH = 20000;
+
+    private final class Prefetch {
+        final long timeFetched;
+        @NonNull
+        final Future<S[]> future;
+
+        Prefetch(@NonNull String videoId) {
+            timeFetched = System.currentTimeMillis();
+            future = Utils.submitOnBackgroundThread(ThreadLane.NETWORK, () -> fetcher.fetchSegments(videoId));
+        }
+
+        boolean isExpired(long now) {
+            return now - timeFetched > CACHE_TIMEOUT_MILLISECONDS;
+        }
+    }
+
+    @NonNull
+    private final Fetcher<S> fetcher;
+
+    /**
+     * Key is the video id.
+     */
+    private final Map<String, Prefetch> prefetchCache = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Prefetch> eldest) {
+            return size() > MAX_CACHED_PREFETCHES;
+        }
+    };
+
+    SegmentPrefetchCache(@NonNull Fetcher<S> fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * Starts fetching the segments of a video, if not already fetched.
+     */
+    void prefetch(@NonNull String videoId) {
+        synchronized (prefetchCache) {
+            Prefetch prefetch = prefetchCache.get(videoId);
+            if (prefetch != null && !prefetch.isExpired(System.currentTimeMillis())) {
+                return;
+            }
+            Logger.printDebug(() -> "Prefetching segments for video: " + videoId);
+            prefetchCache.put(videoId, new Prefetch(videoId));
+        }
+    }
+
+    /**
+     * Removes the prefetch of a video and waits for it to complete.
+     * Must be called off the main thread.
+     *
+     * @return The prefetched segments, or NULL if the video was not prefetched,
+     * the prefetch has expired, or the prefetch failed.
+     */
+    @Nullable
+    S[] takeSegments(@NonNull String videoId) {
+        Utils.verifyOffMainThread();
+        final Prefetch prefetch;
+        synchronized (prefetchCache) {
+            prefetch = prefetchCache.remove(videoId);
+        }
+        if (prefetch == null || prefetch.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+
+        // Cannot hold the lock while waiting for the fetch.
+        try {
+            S[] segments = prefetch.future.get(MAX_MILLISECONDS_TO_WAIT_FOR_PREFETCH, TimeUnit.MILLISECONDS);
+            if (segments != null) {
+                Logger.printDebug(() -> "Using prefetched segments for video: " + videoId);
+            }
+            return segments;
+        } catch (TimeoutException ex) {
+            Logger.printDebug(() -> "Prefetch was not complete after: " + MAX_MILLISECONDS_TO_WAIT_FOR_PREFETCH + "ms");
+        } catch (ExecutionException | InterruptedException ex) {
+            Logger.printException(() -> "Prefetch failure", ex); // will never happen
+        }
+        return null;
+    }
+}
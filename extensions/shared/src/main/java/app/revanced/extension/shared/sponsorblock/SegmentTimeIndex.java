@@ -0,0 +1,117 @@
+package app.revanced.extension.shared.sponsorblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Time index of the segments of a video, built once when the segments are set.
+ * <p>
+ * All segment start and end times split the video into intervals, and every time inside
+ * an interval is contained by the same segments. The segments of each interval are found
+ * when the index is built, so finding the segments that contain a video time
+ * is a binary search with no allocations.
+ * <p>
+ * Segments are referred to by their position in the segment array the index was built from,
+ * and that array must be sorted by start time.
+ */
+public final class SegmentTimeIndex {
+    private static final int[] EMPTY_SEGMENTS = new int[0];
+
+    /**
+     * Start time of each segment. Sorted.
+     */
+    private final long[] starts;
+    /**
+     * All segment start and end times. Sorted and without duplicates.
+     */
+    private final long[] boundaries;
+    /**
+     * Segments containing each interval, in start time order.
+     * Interval i is [boundaries[i - 1], boundaries[i]). Interval 0 is before the first boundary,
+     * and the last interval is after the last boundary.
+     */
+    private final int[][] containingSegments;
+
+    /**
+     * @param starts Segment start times, sorted.
+     * @param ends   Segment end times, in the same order as the start times.
+     */
+    public SegmentTimeIndex(@NonNull long[] starts, @NonNull long[] ends) {
+        if (starts.length != ends.length) {
+            throw new IllegalArgumentException("starts and ends are different lengths");
+        }
+        final int segmentCount = starts.length;
+        this.starts = starts;
+
+        long[] times = new long[segmentCount * 2];
+        System.arraycopy(starts, 0, times, 0, segmentCount);
+        System.arraycopy(ends, 0, times, segmentCount, segmentCount);
+        Arrays.sort(times);
+        int distinctCount = 0;
+        for (int i = 0, length = times.length; i < length; i++) {
+            if (i == 0 || times[i] != times[i - 1]) {
+                times[distinctCount++] = times[i];
+            }
+        }
+        boundaries = Arrays.copyOf(times, distinctCount);
+
+        containingSegments = new int[distinctCount + 1][];
+        containingSegments[0] = EMPTY_SEGMENTS;
+        int[] found = new int[segmentCount];
+        for (int interval = 1; interval <= distinctCount; interval++) {
+            final long intervalStart = boundaries[interval - 1];
+            int foundCount = 0;
+            for (int i = 0; i < segmentCount && starts[i] <= intervalStart; i++) {
+                if (ends[i] > intervalStart) {
+                    found[foundCount++] = i;
+                }
+            }
+            containingSegments[interval] = foundCount == 0
+                    ? EMPTY_SEGMENTS
+                    : Arrays.copyOf(found, foundCount);
+        }
+    }
+
+    /**
+     * @return The interval containing the time. Two times in the same interval
+     * are contained by exactly the same segments.
+     */
+    public int getInterval(long time) {
+        return upperBound(boundaries, time);
+    }
+
+    /**
+     * @return Positions of all segments where start <= time < end, in start time order.
+     * The returned array is shared and must not be modified.
+     */
+    @NonNull
+    public int[] getSegmentsContaining(long time) {
+        return containingSegments[getInterval(time)];
+    }
+
+    /**
+     * @return Position of the first segment that starts after the time,
+     * or the number of segments if no segment starts after the time.
+     */
+    public int getFirstSegmentStartingAfter(long time) {
+        return upperBound(starts, time);
+    }
+
+    /**
+     * @return Number of values less than or equal to the key.
+     */
+    private static int upperBound(long[] sortedValues, long key) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (sortedValues[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
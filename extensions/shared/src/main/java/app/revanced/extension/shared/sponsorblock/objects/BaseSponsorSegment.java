@@ -0,0 +1,70 @@
+package app.revanced.extension.shared.sponsorblock.objects;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Times and skip state of a segment, shared by YouTube and YouTube Music.
+ * Category specific behavior is implemented by each app.
+ */
+public abstract class BaseSponsorSegment implements Comparable<BaseSponsorSegment> {
+    /**
+     * NULL if segment is unsubmitted
+     */
+    @Nullable
+    public final String UUID;
+    public final long start;
+    public final long end;
+    public final boolean isLocked;
+    public boolean didAutoSkipped = false;
+
+    protected BaseSponsorSegment(@Nullable String UUID, long start, long end, boolean isLocked) {
+        this.UUID = UUID;
+        this.start = start;
+        this.end = end;
+        this.isLocked = isLocked;
+    }
+
+    public abstract boolean shouldAutoSkip();
+
+    /**
+     * @param nearThreshold threshold to declare the time parameter is near this segment. Must be a positive number
+     */
+    public boolean startIsNear(long videoTime, long nearThreshold) {
+        return Math.abs(start - videoTime) <= nearThreshold;
+    }
+
+    /**
+     * @param nearThreshold threshold to declare the time parameter is near this segment. Must be a positive number
+     */
+    public boolean endIsNear(long videoTime, long nearThreshold) {
+        return Math.abs(end - videoTime) <= nearThreshold;
+    }
+
+    /**
+     * @return if the time parameter is within this segment
+     */
+    public boolean containsTime(long videoTime) {
+        return start <= videoTime && videoTime < end;
+    }
+
+    /**
+     * @return if the segment is completely contained inside this segment
+     */
+    public boolean containsSegment(BaseSponsorSegment other) {
+        return start <= other.start && other.end <= end;
+    }
+
+    /**
+     * @return the length of this segment, in milliseconds.  Always a positive number.
+     */
+    public long length() {
+        return end - start;
+    }
+
+    @Override
+    public int compareTo(BaseSponsorSegment o) {
+        // If both segments start at the same time, then sort with the longer segment first.
+        // This keeps the seekbar drawing correct since it draws the segments using the sorted order.
+        return start == o.start ? Long.compare(o.length(), length()) : Long.compare(start, o.start);
+    }
+}
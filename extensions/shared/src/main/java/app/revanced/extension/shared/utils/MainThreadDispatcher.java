@@ -0,0 +1,186 @@
+package app.revanced.extension.shared.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Posts work to the main thread using a single cached {@link Handler}.
+ * <p>
+ * Scheduled tasks return a {@link ScheduledTask} token that can be cancelled,
+ * and small UI updates can be coalesced into the next frame with {@link #postOnNextFrame(Runnable)}.
+ */
+public final class MainThreadDispatcher {
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Runnables waiting for the next frame. Insertion ordered and de-duplicated,
+     * so the same runnable posted multiple times before a frame runs only once.
+     */
+    private static final Set<Runnable> pendingFrameTasks = new LinkedHashSet<>();
+
+    /**
+     * If a frame callback is posted and has not yet run. Guarded by {@link #pendingFrameTasks}.
+     */
+    private static boolean frameCallbackPosted;
+
+    /**
+     * Choreographer of the main thread. Can only be obtained on the main thread.
+     */
+    @Nullable
+    private static Choreographer choreographer;
+
+    private static final Choreographer.FrameCallback frameCallback = frameTimeNanos -> runFrameTasks();
+
+    private static final Runnable postFrameCallbackRunnable = MainThreadDispatcher::postFrameCallback;
+
+    private MainThreadDispatcher() {
+    } // utility class
+
+    /**
+     * Cancellable token of a task scheduled on the main thread.
+     * Exceptions thrown by the task are logged.
+     */
+    public static final class ScheduledTask implements Runnable {
+        @NonNull
+        private final Runnable runnable;
+        private volatile boolean cancelled;
+        private volatile boolean completed;
+
+        private ScheduledTask(@NonNull Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) return;
+            completed = true;
+            try {
+                runnable.run();
+            } catch (Exception ex) {
+                Logger.printException(() -> runnable.getClass().getSimpleName() + ": " + ex.getMessage(), ex);
+            }
+        }
+
+        /**
+         * Removes the task from the main thread queue. Has no effect if the task already ran.
+         * Safe to call from any thread.
+         */
+        public void cancel() {
+            cancelled = true;
+            mainHandler.removeCallbacks(this);
+        }
+
+        /**
+         * @return If the task has not yet run and was not cancelled.
+         */
+        public boolean isPending() {
+            return !cancelled && !completed;
+        }
+    }
+
+    /**
+     * Safe to call from any thread.
+     */
+    @NonNull
+    public static ScheduledTask post(@NonNull Runnable runnable) {
+        return postDelayed(runnable, 0);
+    }
+
+    /**
+     * Safe to call from any thread.
+     */
+    @NonNull
+    public static ScheduledTask postDelayed(@NonNull Runnable runnable, long delayMillis) {
+        ScheduledTask task = new ScheduledTask(runnable);
+        mainHandler.postDelayed(task, delayMillis);
+        return task;
+    }
+
+    /**
+     * Runs the task at an exact {@link SystemClock#uptimeMillis()} time.
+     * The task is posted as an asynchronous message, so it is not held back
+     * while the main thread waits for a view traversal.
+     * <p>
+     * Safe to call from any thread.
+     */
+    @NonNull
+    public static ScheduledTask postAtTime(@NonNull Runnable runnable, long uptimeMillis) {
+        ScheduledTask task = new ScheduledTask(runnable);
+        Message message = Message.obtain(mainHandler, task);
+        message.setAsynchronous(true);
+        mainHandler.sendMessageAtTime(message, uptimeMillis);
+        return task;
+    }
+
+    /**
+     * Cancels the task if it's not null.
+     *
+     * @return Always null, so callers can clear the field holding the token in one statement.
+     */
+    @Nullable
+    public static ScheduledTask cancel(@Nullable ScheduledTask task) {
+        if (task != null) {
+            task.cancel();
+        }
+        return null;
+    }
+
+    /**
+     * Runs the runnable on the main thread at the start of the next frame.
+     * All runnables posted before the frame are run together in a single callback,
+     * and a runnable posted again before it has run is only run once.
+     * <p>
+     * Intended for view updates. Safe to call from any thread.
+     */
+    public static void postOnNextFrame(@NonNull Runnable runnable) {
+        synchronized (pendingFrameTasks) {
+            pendingFrameTasks.add(runnable);
+            if (frameCallbackPosted) {
+                return;
+            }
+            frameCallbackPosted = true;
+        }
+
+        if (Utils.isCurrentlyOnMainThread()) {
+            postFrameCallback();
+        } else {
+            mainHandler.post(postFrameCallbackRunnable);
+        }
+    }
+
+    private static void postFrameCallback() {
+        if (choreographer == null) {
+            choreographer = Choreographer.getInstance();
+        }
+        choreographer.postFrameCallback(frameCallback);
+    }
+
+    private static void runFrameTasks() {
+        final List<Runnable> tasks;
+        synchronized (pendingFrameTasks) {
+            tasks = new ArrayList<>(pendingFrameTasks);
+            pendingFrameTasks.clear();
+            frameCallbackPosted = false;
+        }
+
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                Logger.printException(() -> "Frame task failure: " + task.getClass().getSimpleName(), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package app.revanced.extension.shared.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Channel and video metadata seen by any hook, shared by all features.
+ * <p>
+ * Channels are stored by channel id, with lookups from the channel handle.
+ * The channel of each opened video is stored by video id.
+ * Each map holds a fixed number of entries, and the oldest entries are removed first.
+ * <p>
+ * All methods are thread safe and can be called from any thread.
+ */
+public final class MetadataStore {
+
+    /**
+     * Concurrent map that removes the oldest entries when it has more than the limit.
+     */
+    private static final class BoundedMap<K, V> {
+        private final int limit;
+        private final Map<K, V> map;
+        /**
+         * Keys in the order they were added.
+         */
+        private final Queue<K> keys = new ConcurrentLinkedQueue<>();
+
+        BoundedMap(int limit) {
+            this.limit = limit;
+            this.map = new ConcurrentHashMap<>(limit * 2);
+        }
+
+        @Nullable
+        V get(@NonNull K key) {
+            return map.get(key);
+        }
+
+        void put(@NonNull K key, @NonNull V value) {
+            if (map.put(key, value) != null) {
+                return;
+            }
+            keys.add(key);
+            while (map.size() > limit) {
+                K eldest = keys.poll();
+                if (eldest == null) {
+                    return;
+                }
+                map.remove(eldest);
+            }
+        }
+    }
+
+    private static final int CHANNEL_CACHE_LIMIT = 1000;
+    private static final int VIDEO_CACHE_LIMIT = 500;
+
+    /**
+     * Key: channel id, Value: channel name.
+     */
+    private static final BoundedMap<String, String> channelNames = new BoundedMap<>(CHANNEL_CACHE_LIMIT);
+    /**
+     * Key: channel handle, Value: channel id.
+     */
+    private static final BoundedMap<String, String> channelIdsByHandle = new BoundedMap<>(CHANNEL_CACHE_LIMIT);
+    /**
+     * Key: channel id, Value: channel handle.
+     */
+    private static final BoundedMap<String, String> channelHandles = new BoundedMap<>(CHANNEL_CACHE_LIMIT);
+    /**
+     * Key: video id, Value: channel id.
+     */
+    private static final BoundedMap<String, String> videoChannelIds = new BoundedMap<>(VIDEO_CACHE_LIMIT);
+
+    private MetadataStore() {
+    } // utility class
+
+    public static void putChannelName(@NonNull String channelId, @NonNull String channelName) {
+        if (channelId.isEmpty() || channelName.isEmpty()) {
+            return;
+        }
+        channelNames.put(channelId, channelName);
+    }
+
+    /**
+     * @param handle Channel handle, including the leading '@'.
+     */
+    public static void putChannelHandle(@NonNull String channelId, @NonNull String handle) {
+        if (channelId.isEmpty() || handle.isEmpty()) {
+            return;
+        }
+        channelIdsByHandle.put(handle, channelId);
+        channelHandles.put(channelId, handle);
+    }
+
+    public static void putVideo(@NonNull String videoId, @NonNull String channelId, @NonNull String channelName) {
+        if (videoId.isEmpty() || channelId.isEmpty()) {
+            return;
+        }
+        putChannelName(channelId, channelName);
+        videoChannelIds.put(videoId, channelId);
+    }
+
+    @Nullable
+    public static String getChannelName(@NonNull String channelId) {
+        return channelNames.get(channelId);
+    }
+
+    @Nullable
+    public static String getChannelHandle(@NonNull String channelId) {
+        return channelHandles.get(channelId);
+    }
+
+    @Nullable
+    public static String getChannelIdForHandle(@NonNull String handle) {
+        return channelIdsByHandle.get(handle);
+    }
+
+    @Nullable
+    public static String getChannelNameForHandle(@NonNull String handle) {
+        String channelId = channelIdsByHandle.get(handle);
+        return channelId == null ? null : channelNames.get(channelId);
+    }
+
+    /**
+     * @return The channel id of a video that was opened before, or NULL if the video is not known.
+     */
+    @Nullable
+    public static String getChannelIdForVideo(@NonNull String videoId) {
+        return videoChannelIds.get(videoId);
+    }
+}
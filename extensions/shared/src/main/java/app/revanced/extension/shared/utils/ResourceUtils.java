@@ -9,9 +9,28 @@ import android.view.animation.AnimationUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @SuppressWarnings({"unused", "deprecation", "DiscouragedApi"})
 public class ResourceUtils extends Utils {
 
+    /**
+     * Identifiers found by name, indexed by {@link ResourceType#ordinal()}.
+     * Resource ids do not change while the app is running, so lookups are only done once per name.
+     * Names that are not found are cached as zero.
+     */
+    private static final Map<String, Integer>[] identifierCache;
+
+    static {
+        ResourceType[] types = ResourceType.values();
+        //noinspection unchecked
+        identifierCache = new Map[types.length];
+        for (ResourceType type : types) {
+            identifierCache[type.ordinal()] = new ConcurrentHashMap<>();
+        }
+    }
+
     private ResourceUtils() {
     } // utility class
 
@@ -29,8 +48,16 @@ public class ResourceUtils extends Utils {
 
     public static int getIdentifier(@NonNull String str, @NonNull ResourceType resourceType,
                                     @NonNull Context context) {
+        Map<String, Integer> cache = identifierCache[resourceType.ordinal()];
+        Integer cachedIdentifier = cache.get(str);
+        if (cachedIdentifier != null) {
+            return cachedIdentifier;
+        }
+
         try {
-            return context.getResources().getIdentifier(str, resourceType.getType(), context.getPackageName());
+            final int identifier = context.getResources().getIdentifier(str, resourceType.getType(), context.getPackageName());
+            cache.put(str, identifier);
+            return identifier;
         } catch (Exception ex) {
             handleException(str, resourceType);
         }
@@ -0,0 +1,124 @@
+package app.revanced.extension.shared.utils;
+
+import android.os.SystemClock;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Measures how long extension initialization takes during app cold start.
+ * <p>
+ * Each section is also written as an {@link Trace} section, so it shows up in system traces (Perfetto/systrace)
+ * with a 'ReVanced:' prefix.
+ * Timings are collected until {@link #finish()} is called, after which the report is logged
+ * (if debug logging is enabled) and all calls to this class do nothing.
+ * The report is also shown in the debug settings, see {@link #getReport()}.
+ * <p>
+ * Usage:
+ * <pre>
+ * final long start = StartupTrace.begin("Component");
+ * try {
+ *     ...
+ * } finally {
+ *     StartupTrace.end("Component", start);
+ * }
+ * </pre>
+ * Begin and end must be called on the same thread.
+ */
+public final class StartupTrace {
+    private static final String TRACE_SECTION_PREFIX = "ReVanced:";
+
+    /**
+     * Section name to {total nanoseconds, number of calls}.
+     * Sections are reported in the order they first completed.
+     */
+    private static final Map<String, long[]> sections = new LinkedHashMap<>();
+
+    private static volatile boolean finished;
+
+    private StartupTrace() {
+    } // utility class
+
+    /**
+     * @return Start time to pass to {@link #end(String, long)},
+     * or zero if startup tracing has already finished.
+     */
+    public static long begin(@NonNull String section) {
+        if (finished) {
+            return 0;
+        }
+        Trace.beginSection(TRACE_SECTION_PREFIX + section);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Ends a section started with {@link #begin(String)}.
+     * Sections with the same name that run multiple times are added together.
+     */
+    public static void end(@NonNull String section, long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        final long elapsedNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        Trace.endSection();
+
+        synchronized (sections) {
+            long[] values = sections.get(section);
+            if (values == null) {
+                values = new long[2];
+                sections.put(section, values);
+            }
+            values[0] += elapsedNanos;
+            values[1]++;
+        }
+    }
+
+    public static void trace(@NonNull String section, @NonNull Runnable runnable) {
+        final long start = begin(section);
+        try {
+            runnable.run();
+        } finally {
+            end(section, start);
+        }
+    }
+
+    /**
+     * @return Milliseconds spent in each section so far, one section per line.
+     * Sections can be nested (such as StringRef inside Settings), so the values are not summed.
+     */
+    @NonNull
+    public static String getReport() {
+        StringBuilder builder = new StringBuilder("Startup trace:");
+        synchronized (sections) {
+            for (Map.Entry<String, long[]> entry : sections.entrySet()) {
+                final long[] values = entry.getValue();
+                builder.append('\n').append(entry.getKey()).append(": ").append(nanosToMillis(values[0])).append(" ms");
+                if (values[1] > 1) {
+                    builder.append(" (").append(values[1]).append(" calls)");
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Stops collecting timings and logs the report.
+     * Only the first call has any effect.
+     */
+    public static void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        Logger.printDebug(StartupTrace::getReport);
+    }
+
+    @NonNull
+    private static String nanosToMillis(long nanos) {
+        return String.format(Locale.ENGLISH, "%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -104,6 +104,7 @@ public class StringRef extends Utils {
     @NonNull
     public String toString() {
         if (!resolved) {
+            final long start = StartupTrace.begin("StringRef");
             try {
                 Activity mActivity = getActivity();
                 Context context = mActivity != null
@@ -113,8 +114,7 @@ public class StringRef extends Utils {
                     resources = context.getResources();
                 }
                 if (resources != null) {
-                    final String packageName = context.getPackageName();
-                    final int identifier = resources.getIdentifier(value, "string", packageName);
+                    final int identifier = ResourceUtils.getIdentifier(value, ResourceUtils.ResourceType.STRING, context);
                     if (identifier == 0)
                         Logger.printException(() -> "Resource not found: " + value);
                     else
@@ -125,6 +125,8 @@ public class StringRef extends Utils {
                 }
             } catch (Exception ex) {
                 Logger.initializationException(StringRef.class, "Context is null!", ex);
+            } finally {
+                StartupTrace.end("StringRef", start);
             }
         }
 
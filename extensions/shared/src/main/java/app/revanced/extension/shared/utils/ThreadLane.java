@@ -0,0 +1,192 @@
+package app.revanced.extension.shared.utils;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded background executors, each with its own thread priority and queue limit.
+ * <p>
+ * Use {@link Utils#runOnBackgroundThread(ThreadLane, Runnable)} and
+ * {@link Utils#submitOnBackgroundThread(ThreadLane, Callable)} to pick a lane.
+ */
+public enum ThreadLane {
+    /**
+     * Network calls (RYD, SponsorBlock, InnerTube, thumbnail checks).
+     * Threads are mostly blocked waiting on sockets, so more threads than cores are allowed.
+     */
+    NETWORK("network", 8, 64, Thread.NORM_PRIORITY),
+    /**
+     * Short CPU bound work such as parsing or building search structures.
+     * Runs slightly below normal priority so it does not compete with UI and decoder threads.
+     */
+    CPU("cpu", Math.max(2, Runtime.getRuntime().availableProcessors() - 1), 32, Thread.NORM_PRIORITY - 1),
+    /**
+     * Latency critical work that playback is waiting on,
+     * such as fetching spoofed streaming data and downloading segments of the current video.
+     */
+    PLAYBACK("playback", 2, 8, Thread.MAX_PRIORITY);
+
+    /**
+     * Idle threads are kept alive for 10 seconds.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    /**
+     * Number of threads of each lane for tasks that do not fit in the saturated lane.
+     */
+    private static final int OVERFLOW_POOL_SIZE = 2;
+
+    @NonNull
+    private final String laneName;
+    private final int maximumPoolSize;
+    private final int queueCapacity;
+    private final int threadPriority;
+
+    private final AtomicLong rejectedTaskCount = new AtomicLong();
+
+    private volatile ThreadPoolExecutor executor;
+    private volatile ThreadPoolExecutor overflowExecutor;
+
+    ThreadLane(@NonNull String laneName, int maximumPoolSize, int queueCapacity, int threadPriority) {
+        this.laneName = laneName;
+        this.maximumPoolSize = maximumPoolSize;
+        this.queueCapacity = queueCapacity;
+        this.threadPriority = threadPriority;
+    }
+
+    /**
+     * Executors are created on first use, so lanes that are never used do not start threads.
+     */
+    @NonNull
+    private ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null) {
+            synchronized (this) {
+                pool = executor;
+                if (pool == null) {
+                    pool = createExecutor();
+                    executor = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Runs the tasks of this lane while it is saturated.
+     * Each lane has its own overflow executor, so overflow tasks keep the priority of their lane
+     * and never wait behind the overflow tasks of another lane.
+     * The number of threads is fixed and tasks wait in an unbounded queue,
+     * so a burst of tasks can never create more threads.
+     */
+    @NonNull
+    private ThreadPoolExecutor getOverflowExecutor() {
+        ThreadPoolExecutor pool = overflowExecutor;
+        if (pool == null) {
+            synchronized (this) {
+                pool = overflowExecutor;
+                if (pool == null) {
+                    pool = new ThreadPoolExecutor(
+                            OVERFLOW_POOL_SIZE,
+                            OVERFLOW_POOL_SIZE,
+                            KEEP_ALIVE_SECONDS,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(),
+                            createThreadFactory(laneName + "-overflow")
+                    );
+                    pool.allowCoreThreadTimeOut(true);
+                    overflowExecutor = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Threads inherit the priority of the thread creating them, so the priority is always set.
+     */
+    @NonNull
+    private ThreadFactory createThreadFactory(@NonNull String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "revanced-" + name + "-" + threadNumber.incrementAndGet());
+            t.setPriority(threadPriority);
+            return t;
+        };
+    }
+
+    @NonNull
+    private ThreadPoolExecutor createExecutor() {
+        // The queue is only used after all threads up to the maximum are busy.
+        // If the queue is also full, the task is counted as rejected and run by the overflow executor of this lane.
+        // Tasks are not run on the calling thread, as that is often the main thread.
+        RejectedExecutionHandler rejectedHandler = (r, pool) -> {
+            final long rejected = rejectedTaskCount.incrementAndGet();
+            Logger.printDebug(() -> "Lane " + laneName + " is saturated, rejected tasks: " + rejected);
+            getOverflowExecutor().execute(r);
+        };
+
+        // Threads above the core size are only created once the queue is full,
+        // so use the maximum as the core size and let idle core threads time out instead.
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                maximumPoolSize,
+                maximumPoolSize,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                createThreadFactory(laneName),
+                rejectedHandler
+        );
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    void execute(@NonNull Runnable task) {
+        getExecutor().execute(task);
+    }
+
+    @NonNull
+    <T> Future<T> submit(@NonNull Callable<T> call) {
+        FutureTask<T> task = new FutureTask<>(call);
+        getExecutor().execute(task);
+        return task;
+    }
+
+    /**
+     * @return Number of tasks that could not be queued because the lane was saturated.
+     */
+    public long getRejectedTaskCount() {
+        return rejectedTaskCount.get();
+    }
+
+    /**
+     * @return Number of tasks waiting in the queue of this lane.
+     */
+    public int getQueuedTaskCount() {
+        ThreadPoolExecutor pool = executor;
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        ThreadPoolExecutor pool = executor;
+        return laneName
+                + " active: " + (pool == null ? 0 : pool.getActiveCount())
+                + " pool: " + (pool == null ? 0 : pool.getPoolSize()) + "/" + maximumPoolSize
+                + " queued: " + getQueuedTaskCount() + "/" + queueCapacity
+                + " completed: " + (pool == null ? 0 : pool.getCompletedTaskCount())
+                + " rejected: " + rejectedTaskCount.get();
+    }
+}
@@ -16,7 +16,6 @@ import android.net.NetworkInfo;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
 import android.os.Looper;
 import android.preference.Preference;
 import android.preference.PreferenceGroup;
@@ -45,9 +44,6 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import app.revanced.extension.shared.settings.AppLanguage;
@@ -124,28 +120,27 @@ public class Utils {
     }
 
     /**
-     * General purpose pool for network calls and other background tasks.
-     * All tasks run at max thread priority.
+     * Runs the task on the {@link ThreadLane#NETWORK} lane.
      */
-    private static final ThreadPoolExecutor backgroundThreadPool = new ThreadPoolExecutor(
-            3, // 3 threads always ready to go
-            Integer.MAX_VALUE,
-            10, // For any threads over the minimum, keep them alive 10 seconds after they go idle
-            TimeUnit.SECONDS,
-            new SynchronousQueue<>(),
-            r -> { // ThreadFactory
-                Thread t = new Thread(r);
-                t.setPriority(Thread.MAX_PRIORITY); // run at max priority
-                return t;
-            });
-
     public static void runOnBackgroundThread(@NonNull Runnable task) {
-        backgroundThreadPool.execute(task);
+        runOnBackgroundThread(ThreadLane.NETWORK, task);
+    }
+
+    public static void runOnBackgroundThread(@NonNull ThreadLane lane, @NonNull Runnable task) {
+        lane.execute(task);
     }
 
+    /**
+     * Submits the task to the {@link ThreadLane#NETWORK} lane.
+     */
     @NonNull
     public static <T> Future<T> submitOnBackgroundThread(@NonNull Callable<T> call) {
-        return backgroundThreadPool.submit(call);
+        return submitOnBackgroundThread(ThreadLane.NETWORK, call);
+    }
+
+    @NonNull
+    public static <T> Future<T> submitOnBackgroundThread(@NonNull ThreadLane lane, @NonNull Callable<T> call) {
+        return lane.submit(call);
     }
 
     /**
@@ -674,16 +669,20 @@ public class Utils {
 
     /**
      * Automatically logs any exceptions the runnable throws
+     *
+     * @see #scheduleOnMainThread(Runnable, long)
      */
     public static void runOnMainThreadDelayed(@NonNull Runnable runnable, long delayMillis) {
-        Runnable loggingRunnable = () -> {
-            try {
-                runnable.run();
-            } catch (Exception ex) {
-                Logger.printException(() -> runnable.getClass().getSimpleName() + ": " + ex.getMessage(), ex);
-            }
-        };
-        new Handler(Looper.getMainLooper()).postDelayed(loggingRunnable, delayMillis);
+        MainThreadDispatcher.postDelayed(runnable, delayMillis);
+    }
+
+    /**
+     * Same as {@link #runOnMainThreadDelayed(Runnable, long)},
+     * but returns a token that can be used to cancel the task before it runs.
+     */
+    @NonNull
+    public static MainThreadDispatcher.ScheduledTask scheduleOnMainThread(@NonNull Runnable runnable, long delayMillis) {
+        return MainThreadDispatcher.postDelayed(runnable, delayMillis);
     }
 
     /**
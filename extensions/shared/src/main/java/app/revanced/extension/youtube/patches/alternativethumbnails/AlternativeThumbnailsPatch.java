@@ -603,7 +603,7 @@ public final class AlternativeThumbnailsPatch {
             boolean imageFileFound;
             try {
                 // This hooked code is running on a low priority thread, and it's slightly faster
-                // to run the url connection thru the integrations thread pool which runs at the highest priority.
+                // to run the url connection thru the extension network lane which runs at a higher priority.
                 final long start = System.currentTimeMillis();
                 imageFileFound = Utils.submitOnBackgroundThread(() -> {
                     final int connectionTimeoutMillis = 10000; // 10 seconds.
@@ -1,15 +1,19 @@
 package app.revanced.extension.youtube.patches.components;
 
+import android.util.Pair;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import app.revanced.extension.shared.patches.components.Filter;
 import app.revanced.extension.shared.patches.components.StringFilterGroup;
 import app.revanced.extension.shared.settings.StringSetting;
+import app.revanced.extension.shared.utils.ByteTrieSearch;
+import app.revanced.extension.shared.utils.Logger;
 import app.revanced.extension.shared.utils.ResourceUtils;
 import app.revanced.extension.youtube.settings.Settings;
 import app.revanced.extension.youtube.shared.NavigationBar;
@@ -78,8 +82,6 @@ public final class FeedVideoViewsFilter extends Filter {
             Settings.HIDE_VIDEO_VIEW_COUNTS_MULTIPLIER;
     private static final String HIDE_VIDEO_VIEW_COUNTS_MULTIPLIER_DEFAULT_VALUE =
             "revanced_hide_video_view_counts_multiplier_default_value";
-    private static String[] parts;
-    private static Pattern[] viewCountPatterns = null;
 
     static {
         final String multiplierString = HIDE_VIDEO_VIEW_COUNTS_MULTIPLIER.get();
@@ -90,109 +92,265 @@ public final class FeedVideoViewsFilter extends Filter {
                 HIDE_VIDEO_VIEW_COUNTS_MULTIPLIER.save(defaultValue);
             }
         }
-        parts = HIDE_VIDEO_VIEW_COUNTS_MULTIPLIER.get().split("\\n");
+    }
+
+    /**
+     * Matcher of the current multiplier setting.
+     * Replaced if the setting changes.
+     */
+    @Nullable
+    private static volatile ViewCountMatcher viewCountMatcher;
+
+    private static ViewCountMatcher getViewCountMatcher() {
+        final String multiplierSetting = HIDE_VIDEO_VIEW_COUNTS_MULTIPLIER.get();
+        ViewCountMatcher matcher = viewCountMatcher;
+        if (matcher == null || !matcher.multiplierSetting.equals(multiplierSetting)) {
+            // If multiple threads rebuild at the same time, each gets an identical matcher.
+            matcher = new ViewCountMatcher(multiplierSetting);
+            viewCountMatcher = matcher;
+        }
+        return matcher;
     }
 
     /**
      * Hide videos based on views count
      */
-    private synchronized boolean filterByViews(byte[] protobufBufferArray) {
-        final String protobufString = new String(protobufBufferArray);
+    private static boolean filterByViews(byte[] protobufBufferArray) {
+        ViewCountMatcher matcher = getViewCountMatcher();
+        final double[] viewCount = new double[1];
+        if (!matcher.findViewCount(protobufBufferArray, viewCount)) {
+            return false;
+        }
+
         final long lessThan = Settings.HIDE_VIDEO_VIEW_COUNTS_LESS_THAN.get();
         final long greaterThan = Settings.HIDE_VIDEO_VIEW_COUNTS_GREATER_THAN.get();
+        return viewCount[0] < lessThan || viewCount[0] > greaterThan;
+    }
 
-        if (viewCountPatterns == null) {
-            viewCountPatterns = getViewCountPatterns(parts);
-        }
+    /**
+     * Finds the view count in the raw UTF-8 protobuf buffer, without decoding the buffer to a String.
+     * <p>
+     * Compiled from the multiplier setting, which has one 'key -> value' rule per line:
+     * <ul>
+     * <li>'K -> 1 000' declares a multiplier suffix and its value.</li>
+     * <li>'조회수 -> views' declares the localized views word.</li>
+     * </ul>
+     * The view count is either a number, multiplier and the views word ('1.2K views'),
+     * or for languages with a declared views word it can also be the views word followed by the number ('조회수 1.2만회').
+     * <p>
+     * Instances are immutable and can be used by multiple threads.
+     */
+    private static final class ViewCountMatcher {
+        /**
+         * Setting value this instance was compiled from.
+         */
+        final String multiplierSetting;
 
-        for (Pattern pattern : viewCountPatterns) {
-            final Matcher matcher = pattern.matcher(protobufString);
-            if (matcher.find()) {
-                String numString = Objects.requireNonNull(matcher.group(1));
-                double num = parseNumber(numString);
-                String multiplierKey = matcher.group(2);
-                long multiplierValue = getMultiplierValue(parts, multiplierKey);
-                return num * multiplierValue < lessThan || num * multiplierValue > greaterThan;
-            }
-        }
+        /**
+         * UTF-8 multiplier suffixes, sorted longest first so the longest suffix is always matched.
+         */
+        private final byte[][] multipliers;
+        private final long[] multiplierValues;
 
-        return false;
-    }
+        /**
+         * Views word that follows the view count.
+         */
+        private final ByteTrieSearch suffixViewsSearch = new ByteTrieSearch();
 
-    private synchronized double parseNumber(String numString) {
         /**
-         * Some languages have comma (,) as a decimal separator.
-         * In order to detect those numbers as doubles in Java
-         * we convert commas (,) to dots (.).
-         * Unless we find a language that has commas used in
-         * a different manner, it should work.
+         * Views word that comes before the view count. Empty if the setting does not declare a views word.
          */
-        numString = numString.replace(",", ".");
+        private final ByteTrieSearch prefixViewsSearch = new ByteTrieSearch();
+
+        ViewCountMatcher(@NonNull String multiplierSetting) {
+            this.multiplierSetting = multiplierSetting;
+
+            List<String> viewsWords = new ArrayList<>();
+            List<Pair<byte[], Long>> multiplierList = new ArrayList<>();
+
+            for (String line : multiplierSetting.split("\n")) {
+                final int arrowIndex = line.indexOf(ARROW);
+                if (arrowIndex < 0) continue;
+                final String key = line.substring(0, arrowIndex).trim();
+                final String value = line.substring(arrowIndex + ARROW.length()).trim();
+                if (key.isEmpty()) continue;
+
+                if (value.equals(VIEWS)) {
+                    viewsWords.add(key);
+                    continue;
+                }
+                final String digits = value.replaceAll("[^\\d]", "");
+                if (digits.isEmpty()) {
+                    Logger.printDebug(() -> "Ignoring multiplier without a number: " + line);
+                    continue;
+                }
+                multiplierList.add(new Pair<>(key.getBytes(StandardCharsets.UTF_8), Long.parseLong(digits)));
+            }
+
+            multiplierList.sort((first, second) -> second.first.length - first.first.length);
+            final int multiplierCount = multiplierList.size();
+            multipliers = new byte[multiplierCount][];
+            multiplierValues = new long[multiplierCount];
+            for (int i = 0; i < multiplierCount; i++) {
+                multipliers[i] = multiplierList.get(i).first;
+                multiplierValues[i] = multiplierList.get(i).second;
+            }
+
+            if (viewsWords.isEmpty()) {
+                suffixViewsSearch.addPattern(VIEWS.getBytes(StandardCharsets.UTF_8), this::parseViewCountBefore);
+            } else {
+                for (String viewsWord : viewsWords) {
+                    final byte[] bytes = viewsWord.getBytes(StandardCharsets.UTF_8);
+                    suffixViewsSearch.addPattern(bytes, this::parseViewCountBefore);
+                    prefixViewsSearch.addPattern(bytes, this::parseViewCountAfter);
+                }
+            }
+        }
 
         /**
-         * Some languages have dot (.) as a kilo separator.
-         * So we check with regex if there is a number with 3+
-         * digits after dot (.), we replace it with nothing
-         * to make Java understand the number as a whole.
+         * @param viewCount Array of length 1, where the view count is stored if found.
+         * @return If the view count was found.
          */
-        if (numString.matches("\\d+\\.\\d{3,}")) {
-            numString = numString.replace(".", "");
+        boolean findViewCount(@NonNull byte[] buffer, @NonNull double[] viewCount) {
+            return suffixViewsSearch.matches(buffer, viewCount) || prefixViewsSearch.matches(buffer, viewCount);
         }
 
-        return Double.parseDouble(numString);
-    }
+        /**
+         * Callback for a views word that follows the number, such as '1.2K views'.
+         */
+        private boolean parseViewCountBefore(byte[] buffer, int viewsStartIndex, int viewsLength, Object viewCount) {
+            int index = viewsStartIndex - 1;
+            while (index >= 0 && isWhitespace(buffer[index])) index--;
+
+            for (int i = 0, length = multipliers.length; i < length; i++) {
+                final byte[] multiplier = multipliers[i];
+                final int multiplierStartIndex = index - multiplier.length + 1;
+                if (multiplierStartIndex >= 0 && regionMatches(buffer, multiplierStartIndex, multiplier)) {
+                    int numberEndIndex = multiplierStartIndex - 1;
+                    // Up to one whitespace between the number and multiplier.
+                    if (numberEndIndex >= 0 && isWhitespace(buffer[numberEndIndex])) numberEndIndex--;
+                    if (parseNumberEndingAt(buffer, numberEndIndex, multiplierValues[i], (double[]) viewCount)) {
+                        return true;
+                    }
+                }
+            }
 
-    private synchronized Pattern[] getViewCountPatterns(String[] parts) {
-        StringBuilder prefixPatternBuilder = new StringBuilder("(\\d+(?:[.,]\\d+)?)\\s?("); // LTR layout
-        StringBuilder secondPatternBuilder = new StringBuilder(); // RTL layout
-        StringBuilder suffixBuilder = getSuffixBuilder(parts, prefixPatternBuilder, secondPatternBuilder);
+            return parseNumberEndingAt(buffer, index, 1, (double[]) viewCount);
+        }
 
-        prefixPatternBuilder.deleteCharAt(prefixPatternBuilder.length() - 1); // Remove the trailing |
-        prefixPatternBuilder.append(")?\\s*");
-        prefixPatternBuilder.append(suffixBuilder.length() > 0 ? suffixBuilder.toString() : VIEWS);
+        /**
+         * Callback for a views word that comes before the number, such as '조회수 1.2만회'.
+         */
+        private boolean parseViewCountAfter(byte[] buffer, int viewsStartIndex, int viewsLength, Object viewCount) {
+            final int bufferLength = buffer.length;
+            int index = viewsStartIndex + viewsLength;
+            while (index < bufferLength && isWhitespace(buffer[index])) index++;
+            if (index >= bufferLength || !isDigit(buffer[index])) {
+                return false;
+            }
 
-        secondPatternBuilder.deleteCharAt(secondPatternBuilder.length() - 1); // Remove the trailing |
-        secondPatternBuilder.append(")?");
+            final int numberStartIndex = index;
+            while (index < bufferLength && isDigit(buffer[index])) index++;
+            int separatorIndex = -1;
+            if (index + 1 < bufferLength && isSeparator(buffer[index]) && isDigit(buffer[index + 1])) {
+                separatorIndex = index;
+                index++;
+                while (index < bufferLength && isDigit(buffer[index])) index++;
+            }
+            final double number = parseNumber(buffer, numberStartIndex, separatorIndex, index);
+
+            // Up to one whitespace between the number and multiplier.
+            if (index < bufferLength && isWhitespace(buffer[index])) index++;
+            long multiplierValue = 1;
+            for (int i = 0, length = multipliers.length; i < length; i++) {
+                if (regionMatches(buffer, index, multipliers[i])) {
+                    multiplierValue = multiplierValues[i];
+                    break;
+                }
+            }
 
-        final Pattern[] patterns = new Pattern[2];
-        patterns[0] = Pattern.compile(prefixPatternBuilder.toString());
-        patterns[1] = Pattern.compile(secondPatternBuilder.toString());
+            ((double[]) viewCount)[0] = number * multiplierValue;
+            return true;
+        }
 
-        return patterns;
-    }
+        /**
+         * Parses a number that ends at the given index, such as '12', '1.5' or '1,234'.
+         *
+         * @param numberEndIndex Index of the last digit, inclusive.
+         */
+        private static boolean parseNumberEndingAt(byte[] buffer, int numberEndIndex, long multiplier, double[] viewCount) {
+            if (numberEndIndex < 0 || !isDigit(buffer[numberEndIndex])) {
+                return false;
+            }
 
-    @NonNull
-    private synchronized StringBuilder getSuffixBuilder(String[] parts, StringBuilder prefixPatternBuilder, StringBuilder secondPatternBuilder) {
-        StringBuilder suffixBuilder = new StringBuilder();
+            int index = numberEndIndex;
+            while (index >= 0 && isDigit(buffer[index])) index--;
+            int separatorIndex = -1;
+            if (index >= 1 && isSeparator(buffer[index]) && isDigit(buffer[index - 1])) {
+                separatorIndex = index;
+                index--;
+                while (index >= 0 && isDigit(buffer[index])) index--;
+            }
 
-        for (String part : parts) {
-            final String[] pair = part.split(ARROW);
-            final String pair0 = pair[0].trim();
-            final String pair1 = pair[1].trim();
+            viewCount[0] = parseNumber(buffer, index + 1, separatorIndex, numberEndIndex + 1) * multiplier;
+            return true;
+        }
 
-            if (pair.length == 2 && !pair1.equals(VIEWS)) {
-                prefixPatternBuilder.append(pair0).append("|");
+        /**
+         * Some languages use a comma as the decimal separator, and some use a dot as the thousands separator.
+         * A separator followed by 3 or more digits is a thousands separator ('1.234' is 1234),
+         * otherwise it's a decimal separator ('1,5' is 1.5).
+         *
+         * @param separatorIndex Index of the separator, or -1 if there is none.
+         * @param endIndex       Index after the last digit, exclusive.
+         */
+        private static double parseNumber(byte[] buffer, int startIndex, int separatorIndex, int endIndex) {
+            final int integerEndIndex = separatorIndex < 0 ? endIndex : separatorIndex;
+            double value = 0;
+            for (int i = startIndex; i < integerEndIndex; i++) {
+                value = value * 10 + (buffer[i] - '0');
+            }
+            if (separatorIndex < 0) {
+                return value;
             }
 
-            if (pair.length == 2 && pair1.equals(VIEWS)) {
-                suffixBuilder.append(pair0);
-                secondPatternBuilder.append(pair0).append("\\s*").append(prefixPatternBuilder);
+            final int fractionDigits = endIndex - separatorIndex - 1;
+            double fraction = 0;
+            for (int i = separatorIndex + 1; i < endIndex; i++) {
+                fraction = fraction * 10 + (buffer[i] - '0');
+            }
+            if (fractionDigits >= 3) {
+                return value * Math.pow(10, fractionDigits) + fraction;
             }
+            return value + fraction / Math.pow(10, fractionDigits);
         }
-        return suffixBuilder;
-    }
-
-    private synchronized long getMultiplierValue(String[] parts, String multiplier) {
-        for (String part : parts) {
-            final String[] pair = part.split(ARROW);
-            final String pair0 = pair[0].trim();
-            final String pair1 = pair[1].trim();
 
-            if (pair.length == 2 && pair0.equals(multiplier) && !pair1.equals(VIEWS)) {
-                return Long.parseLong(pair[1].replaceAll("[^\\d]", ""));
+        private static boolean regionMatches(byte[] buffer, int startIndex, byte[] pattern) {
+            final int patternLength = pattern.length;
+            if (startIndex < 0 || startIndex + patternLength > buffer.length) {
+                return false;
             }
+            for (int i = 0; i < patternLength; i++) {
+                if (buffer[startIndex + i] != pattern[i]) {
+                    return false;
+                }
+            }
+            return true;
         }
 
-        return 1L; // Default value if not found
+        private static boolean isDigit(byte value) {
+            return value >= '0' && value <= '9';
+        }
+
+        private static boolean isSeparator(byte value) {
+            return value == '.' || value == ',';
+        }
+
+        /**
+         * Same characters as the regex whitespace class.
+         */
+        private static boolean isWhitespace(byte value) {
+            return value == ' ' || value == '\t' || value == '\n' || value == 0x0B || value == '\f' || value == '\r';
+        }
     }
 }
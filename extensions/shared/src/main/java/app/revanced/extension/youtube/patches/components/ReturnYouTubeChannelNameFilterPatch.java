@@ -2,7 +2,7 @@ package app.revanced.extension.youtube.patches.components;
 
 import androidx.annotation.Nullable;
 
-import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 
 import app.revanced.extension.shared.patches.components.ByteArrayFilterGroup;
 import app.revanced.extension.shared.patches.components.ByteArrayFilterGroupList;
@@ -12,15 +12,13 @@ import app.revanced.extension.shared.utils.Logger;
 import app.revanced.extension.youtube.patches.utils.ReturnYouTubeChannelNamePatch;
 import app.revanced.extension.youtube.settings.Settings;
 
-@SuppressWarnings({"unused", "CharsetObjectCanBeUsed"})
+@SuppressWarnings("unused")
 public final class ReturnYouTubeChannelNameFilterPatch extends Filter {
-    private static final String DELIMITING_CHARACTER = "❙";
-    private static final String CHANNEL_ID_IDENTIFIER_CHARACTER = "UC";
-    private static final String CHANNEL_ID_IDENTIFIER_WITH_DELIMITING_CHARACTER =
-            DELIMITING_CHARACTER + CHANNEL_ID_IDENTIFIER_CHARACTER;
-    private static final String HANDLE_IDENTIFIER_CHARACTER = "@";
-    private static final String HANDLE_IDENTIFIER_WITH_DELIMITING_CHARACTER =
-            HANDLE_IDENTIFIER_CHARACTER + CHANNEL_ID_IDENTIFIER_CHARACTER;
+    /**
+     * Channel ids are 'UC' followed by 22 characters.
+     */
+    private static final int CHANNEL_ID_LENGTH = 24;
+    private static final String HANDLE_URL_PATH = "/@";
 
     private final ByteArrayFilterGroupList shortsChannelBarAvatarFilterGroup = new ByteArrayFilterGroupList();
 
@@ -29,7 +27,7 @@ public final class ReturnYouTubeChannelNameFilterPatch extends Filter {
                 new StringFilterGroup(Settings.REPLACE_CHANNEL_HANDLE, "|reel_channel_bar_inner.eml|")
         );
         shortsChannelBarAvatarFilterGroup.addAll(
-                new ByteArrayFilterGroup(Settings.REPLACE_CHANNEL_HANDLE, "/@")
+                new ByteArrayFilterGroup(Settings.REPLACE_CHANNEL_HANDLE, HANDLE_URL_PATH)
         );
     }
 
@@ -43,30 +41,27 @@ public final class ReturnYouTubeChannelNameFilterPatch extends Filter {
         return false;
     }
 
-    private void setLastShortsChannelId(byte[] protobufBufferArray) {
+    /**
+     * Finds the channel id, and the handle after it, in the buffer without converting the buffer to a String.
+     */
+    private static void setLastShortsChannelId(byte[] buffer) {
         try {
-            String[] splitArr;
-            final String bufferString = findAsciiStrings(protobufBufferArray);
-            splitArr = bufferString.split(CHANNEL_ID_IDENTIFIER_WITH_DELIMITING_CHARACTER);
-            if (splitArr.length < 2) {
+            final int channelIdIndex = indexOfChannelId(buffer);
+            if (channelIdIndex < 0) {
                 return;
             }
-            final String splitedBufferString = CHANNEL_ID_IDENTIFIER_CHARACTER + splitArr[1];
-            splitArr = splitedBufferString.split(HANDLE_IDENTIFIER_WITH_DELIMITING_CHARACTER);
-            if (splitArr.length < 2) {
+            final int handleUrlIndex = indexOfHandleUrlPath(buffer, channelIdIndex + CHANNEL_ID_LENGTH);
+            if (handleUrlIndex < 0) {
                 return;
             }
-            splitArr = splitArr[1].split(DELIMITING_CHARACTER);
-            if (splitArr.length < 1) {
+            final int handleStart = handleUrlIndex + 1; // Keep the '@'.
+            final int handleEnd = indexOfHandleEnd(buffer, handleStart + 1);
+            if (handleEnd == handleStart + 1) {
                 return;
             }
-            final String cachedHandle = HANDLE_IDENTIFIER_CHARACTER + splitArr[0];
-            splitArr = splitedBufferString.split(DELIMITING_CHARACTER);
-            if (splitArr.length < 1) {
-                return;
-            }
-            final String channelId = splitArr[0].replaceAll("\"", "").trim();
-            final String handle = URLDecoder.decode(cachedHandle, "UTF-8").trim();
+
+            final String channelId = new String(buffer, channelIdIndex, CHANNEL_ID_LENGTH, StandardCharsets.US_ASCII);
+            final String handle = decodeHandle(buffer, handleStart, handleEnd);
 
             ReturnYouTubeChannelNamePatch.setLastShortsChannelId(handle, channelId);
         } catch (Exception ex) {
@@ -74,32 +69,93 @@ public final class ReturnYouTubeChannelNameFilterPatch extends Filter {
         }
     }
 
-    private String findAsciiStrings(byte[] buffer) {
-        StringBuilder builder = new StringBuilder(Math.max(100, buffer.length / 2));
-        builder.append("");
+    /**
+     * @return Index of the first channel id that starts a run of printable ASCII, or -1 if not found.
+     */
+    private static int indexOfChannelId(byte[] buffer) {
+        for (int i = 0, length = buffer.length - CHANNEL_ID_LENGTH; i <= length; i++) {
+            if (buffer[i] != 'U' || buffer[i + 1] != 'C' || (i > 0 && isPrintableAscii(buffer[i - 1]))) {
+                continue;
+            }
+            int idEnd = i + 2;
+            final int maxIdEnd = i + CHANNEL_ID_LENGTH;
+            while (idEnd < maxIdEnd && isChannelIdCharacter(buffer[idEnd])) {
+                idEnd++;
+            }
+            // Longer tokens that start with a channel id are not channel ids.
+            if (idEnd == maxIdEnd && (maxIdEnd == buffer.length || !isChannelIdCharacter(buffer[maxIdEnd]))) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-        // Valid ASCII values (ignore control characters).
-        final int minimumAscii = 32;  // 32 = space character
-        final int maximumAscii = 126; // 127 = delete character
-        final int minimumAsciiStringLength = 4; // Minimum length of an ASCII string to include.
-        String delimitingCharacter = "❙"; // Non ascii character, to allow easier log filtering.
+    /**
+     * @return Index of the first '/@', starting the search at the index, or -1 if not found.
+     */
+    private static int indexOfHandleUrlPath(byte[] buffer, int index) {
+        for (int length = buffer.length - 1; index < length; index++) {
+            if (buffer[index] == '/' && buffer[index + 1] == '@') {
+                return index;
+            }
+        }
+        return -1;
+    }
 
+    /**
+     * @return Index after the last handle character, starting the search at the index.
+     */
+    private static int indexOfHandleEnd(byte[] buffer, int index) {
         final int length = buffer.length;
-        int start = 0;
-        int end = 0;
-        while (end < length) {
-            int value = buffer[end];
-            if (value < minimumAscii || value > maximumAscii || end == length - 1) {
-                if (end - start >= minimumAsciiStringLength) {
-                    for (int i = start; i < end; i++) {
-                        builder.append((char) buffer[i]);
-                    }
-                    builder.append(delimitingCharacter);
+        while (index < length && isHandleCharacter(buffer[index])) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Handles with non ASCII characters are URL encoded.
+     */
+    private static String decodeHandle(byte[] buffer, int start, int end) {
+        int percentIndex = -1;
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == '%') {
+                percentIndex = i;
+                break;
+            }
+        }
+        if (percentIndex < 0) {
+            return new String(buffer, start, end - start, StandardCharsets.US_ASCII);
+        }
+
+        byte[] decoded = new byte[end - start];
+        int decodedLength = 0;
+        for (int i = start; i < end; i++) {
+            final byte value = buffer[i];
+            if (value == '%' && i + 2 < end) {
+                final int high = Character.digit(buffer[i + 1], 16);
+                final int low = Character.digit(buffer[i + 2], 16);
+                if (high >= 0 && low >= 0) {
+                    decoded[decodedLength++] = (byte) ((high << 4) | low);
+                    i += 2;
+                    continue;
                 }
-                start = end + 1;
             }
-            end++;
+            decoded[decodedLength++] = value;
         }
-        return builder.toString();
+        return new String(decoded, 0, decodedLength, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isPrintableAscii(byte value) {
+        return value >= 32 && value <= 126;
+    }
+
+    private static boolean isChannelIdCharacter(byte value) {
+        return (value >= 'a' && value <= 'z') || (value >= 'A' && value <= 'Z')
+                || (value >= '0' && value <= '9') || value == '_' || value == '-';
+    }
+
+    private static boolean isHandleCharacter(byte value) {
+        return isChannelIdCharacter(value) || value == '.' || value == '%';
     }
 }
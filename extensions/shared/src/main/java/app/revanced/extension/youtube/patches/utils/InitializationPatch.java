@@ -10,12 +10,19 @@ import androidx.annotation.NonNull;
 
 import app.revanced.extension.shared.settings.BaseSettings;
 import app.revanced.extension.shared.settings.BooleanSetting;
+import app.revanced.extension.shared.utils.StartupTrace;
 import app.revanced.extension.youtube.utils.ExtendedUtils;
 
 @SuppressWarnings("unused")
 public class InitializationPatch {
     private static final BooleanSetting SETTINGS_INITIALIZED = BaseSettings.SETTINGS_INITIALIZED;
 
+    /**
+     * Time after the main activity is created to stop collecting startup timings.
+     * Long enough for the home feed to load, so lazily initialized components are included.
+     */
+    private static final long STARTUP_TRACE_DURATION_MILLIS = 10_000;
+
     /**
      * Some layouts that depend on litho do not load when the app is first installed.
      * (Also reproduced on unPatched YouTube)
@@ -23,14 +30,21 @@ public class InitializationPatch {
      * To fix this, show the restart dialog when the app is installed for the first time.
      */
     public static void onCreate(@NonNull Activity mActivity) {
-        if (SETTINGS_INITIALIZED.get()) {
-            return;
+        final long start = StartupTrace.begin("InitializationPatch");
+        try {
+            runOnMainThreadDelayed(StartupTrace::finish, STARTUP_TRACE_DURATION_MILLIS);
+
+            if (SETTINGS_INITIALIZED.get()) {
+                return;
+            }
+            runOnMainThreadDelayed(() -> showRestartDialog(mActivity, str("revanced_extended_restart_first_run"), 3500), 500);
+            runOnMainThreadDelayed(() -> SETTINGS_INITIALIZED.save(true), 1000);
+        } finally {
+            StartupTrace.end("InitializationPatch", start);
         }
-        runOnMainThreadDelayed(() -> showRestartDialog(mActivity, str("revanced_extended_restart_first_run"), 3500), 500);
-        runOnMainThreadDelayed(() -> SETTINGS_INITIALIZED.save(true), 1000);
     }
 
     public static void setExtendedUtils(@NonNull Activity mActivity) {
-        ExtendedUtils.setPlayerFlyoutMenuAdditionalSettings();
+        StartupTrace.trace("ExtendedUtils", ExtendedUtils::setPlayerFlyoutMenuAdditionalSettings);
     }
 }
\ No newline at end of file
@@ -2,11 +2,8 @@ package app.revanced.extension.youtube.patches.utils;
 
 import androidx.annotation.NonNull;
 
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
-
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.MetadataStore;
 import app.revanced.extension.youtube.settings.Settings;
 
 @SuppressWarnings("unused")
@@ -18,33 +15,10 @@ public class ReturnYouTubeChannelNamePatch {
      * This was in the form of nonBreakSpaceCharacter before SpannableString was made.
      */
     private static final String NON_BREAK_SPACE_CHARACTER = "\u00A0";
-    private volatile static String channelName = "";
-
     /**
-     * Key: channelId, Value: channelName.
+     * Channel of the last Short started, used if the channel of a handle is not known.
      */
-    private static final Map<String, String> channelIdMap = Collections.synchronizedMap(
-            new LinkedHashMap<>(20) {
-                private static final int CACHE_LIMIT = 10;
-
-                @Override
-                protected boolean removeEldestEntry(Entry eldest) {
-                    return size() > CACHE_LIMIT; // Evict the oldest entry if over the cache limit.
-                }
-            });
-
-    /**
-     * Key: handle, Value: channelName.
-     */
-    private static final Map<String, String> channelHandleMap = Collections.synchronizedMap(
-            new LinkedHashMap<>(20) {
-                private static final int CACHE_LIMIT = 10;
-
-                @Override
-                protected boolean removeEldestEntry(Entry eldest) {
-                    return size() > CACHE_LIMIT; // Evict the oldest entry if over the cache limit.
-                }
-            });
+    private volatile static String channelId = "";
 
     /**
      * This method is only invoked on Shorts and is updated whenever the user swipes up or down on the Shorts.
@@ -55,13 +29,12 @@ public class ReturnYouTubeChannelNamePatch {
         if (!REPLACE_CHANNEL_HANDLE) {
             return;
         }
-        if (channelIdMap.get(newlyLoadedChannelId) != null) {
+        MetadataStore.putVideo(newlyLoadedVideoId, newlyLoadedChannelId, newlyLoadedChannelName);
+        if (channelId.equals(newlyLoadedChannelId)) {
             return;
         }
-        if (channelIdMap.put(newlyLoadedChannelId, newlyLoadedChannelName) == null) {
-            channelName = newlyLoadedChannelName;
-            Logger.printDebug(() -> "New video started, ChannelId " + newlyLoadedChannelId + ", Channel Name: " + newlyLoadedChannelName);
-        }
+        channelId = newlyLoadedChannelId;
+        Logger.printDebug(() -> "New video started, ChannelId " + newlyLoadedChannelId + ", Channel Name: " + newlyLoadedChannelName);
     }
 
     /**
@@ -91,11 +64,14 @@ public class ReturnYouTubeChannelNamePatch {
     private static CharSequence getChannelName(@NonNull String handle) {
         final String trimmedHandle = handle.replaceAll(NON_BREAK_SPACE_CHARACTER, "");
 
-        String cachedChannelName = channelHandleMap.get(trimmedHandle);
+        String cachedChannelName = MetadataStore.getChannelNameForHandle(trimmedHandle);
         if (cachedChannelName == null) {
-            if (!channelName.isEmpty() && channelHandleMap.put(handle, channelName) == null) {
-                Logger.printDebug(() -> "Set Handle from last fetched Channel Name, Handle: " + handle + ", Channel Name: " + channelName);
-                cachedChannelName = channelName;
+            final String lastChannelId = channelId;
+            final String lastChannelName = MetadataStore.getChannelName(lastChannelId);
+            if (lastChannelName != null && MetadataStore.getChannelHandle(lastChannelId) == null) {
+                MetadataStore.putChannelHandle(lastChannelId, trimmedHandle);
+                Logger.printDebug(() -> "Set Handle from last fetched Channel Name, Handle: " + trimmedHandle + ", Channel Name: " + lastChannelName);
+                cachedChannelName = lastChannelName;
             } else {
                 Logger.printDebug(() -> "Channel handle is not found: " + trimmedHandle);
                 return handle;
@@ -110,19 +86,13 @@ public class ReturnYouTubeChannelNamePatch {
         return replacedChannelName;
     }
 
-    public synchronized static void setLastShortsChannelId(@NonNull String handle, @NonNull String channelId) {
+    public static void setLastShortsChannelId(@NonNull String handle, @NonNull String channelId) {
         try {
-            if (channelHandleMap.get(handle) != null) {
+            if (handle.equals(MetadataStore.getChannelHandle(channelId))) {
                 return;
             }
-            final String channelName = channelIdMap.get(channelId);
-            if (channelName == null) {
-                Logger.printDebug(() -> "Channel name is not found!");
-                return;
-            }
-            if (channelHandleMap.put(handle, channelName) == null) {
-                Logger.printDebug(() -> "Set Handle from Shorts, Handle: " + handle + ", Channel Name: " + channelName);
-            }
+            MetadataStore.putChannelHandle(channelId, handle);
+            Logger.printDebug(() -> "Set Handle from Shorts, Handle: " + handle + ", Channel Id: " + channelId);
         } catch (Exception ex) {
             Logger.printException(() -> "setLastShortsChannelId failure ", ex);
         }
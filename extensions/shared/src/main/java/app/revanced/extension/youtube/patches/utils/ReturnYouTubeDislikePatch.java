@@ -22,6 +22,7 @@ import java.util.Objects;
 
 import app.revanced.extension.shared.returnyoutubedislike.requests.ReturnYouTubeDislikeApi;
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.MainThreadDispatcher;
 import app.revanced.extension.shared.utils.Utils;
 import app.revanced.extension.youtube.patches.components.ReturnYouTubeDislikeFilterPatch;
 import app.revanced.extension.youtube.returnyoutubedislike.ReturnYouTubeDislike;
@@ -480,7 +481,8 @@ public class ReturnYouTubeDislikePatch {
 
             Runnable update = () -> {
                 Spanned shortsDislikesSpan = videoData.getDislikeSpanForShort(SHORTS_LOADING_SPAN);
-                Utils.runOnMainThreadNowOrLater(() -> {
+                // Batch with other view updates of the same frame.
+                MainThreadDispatcher.postOnNextFrame(() -> {
                     String videoId = videoData.getVideoId();
                     if (!videoId.equals(VideoInformation.getVideoId())) {
                         // User swiped to new video before fetch completed
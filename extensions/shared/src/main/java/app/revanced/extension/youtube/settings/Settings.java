@@ -29,6 +29,7 @@ import app.revanced.extension.shared.settings.Setting;
 import app.revanced.extension.shared.settings.StringSetting;
 import app.revanced.extension.shared.settings.preference.SharedPrefCategory;
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.StartupTrace;
 import app.revanced.extension.shared.utils.Utils;
 import app.revanced.extension.youtube.patches.alternativethumbnails.AlternativeThumbnailsPatch.DeArrowAvailability;
 import app.revanced.extension.youtube.patches.alternativethumbnails.AlternativeThumbnailsPatch.StillImagesAvailability;
@@ -49,6 +50,11 @@ import app.revanced.extension.youtube.sponsorblock.SponsorBlockSettings;
 
 @SuppressWarnings("unused")
 public class Settings extends BaseSettings {
+    /**
+     * Must be declared first, so the startup trace includes loading every setting below.
+     */
+    private static final long classInitStartTime = StartupTrace.begin("Settings");
+
     // PreferenceScreen: Ads
     public static final BooleanSetting HIDE_END_SCREEN_STORE_BANNER = new BooleanSetting("revanced_hide_end_screen_store_banner", TRUE, true);
     public static final BooleanSetting HIDE_GENERAL_ADS = new BooleanSetting("revanced_hide_general_ads", TRUE);
@@ -171,7 +177,7 @@ public class Settings extends BaseSettings {
 
     // PreferenceScreen: General - Custom filter
     public static final BooleanSetting CUSTOM_FILTER = new BooleanSetting("revanced_custom_filter", FALSE);
-    public static final StringSetting CUSTOM_FILTER_STRINGS = new StringSetting("revanced_custom_filter_strings", "", true, parent(CUSTOM_FILTER));
+    public static final StringSetting CUSTOM_FILTER_STRINGS = new StringSetting("revanced_custom_filter_strings", "", parent(CUSTOM_FILTER));
 
     // PreferenceScreen: General - Navigation Bar
     public static final BooleanSetting ENABLE_NARROW_NAVIGATION_BUTTONS = new BooleanSetting("revanced_enable_narrow_navigation_buttons", FALSE, true);
@@ -726,5 +732,7 @@ public class Settings extends BaseSettings {
         Setting.addImportExportCallback(SponsorBlockSettings.SB_IMPORT_EXPORT_CALLBACK);
 
         // endregion
+
+        StartupTrace.end("Settings", classInitStartTime);
     }
 }
@@ -0,0 +1,47 @@
+package app.revanced.extension.youtube.settings.preference;
+
+import static app.revanced.extension.shared.utils.StringRef.str;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.preference.Preference;
+import android.util.AttributeSet;
+
+import app.revanced.extension.shared.utils.StartupTrace;
+import app.revanced.extension.shared.utils.Utils;
+
+/**
+ * Shows the timings of {@link StartupTrace}, and copies them to the clipboard.
+ */
+@SuppressWarnings({"unused", "deprecation"})
+public class StartupTracePreference extends Preference {
+    {
+        setOnPreferenceClickListener(pref -> {
+            final String report = StartupTrace.getReport();
+            new AlertDialog.Builder(pref.getContext())
+                    .setTitle(str("revanced_startup_trace_title"))
+                    .setMessage(report)
+                    .setPositiveButton(android.R.string.ok, null)
+                    .setNeutralButton(str("revanced_startup_trace_copy"), (dialog, which) ->
+                            Utils.setClipboard(report, str("revanced_startup_trace_copy_success")))
+                    .show();
+            return true;
+        });
+    }
+
+    public StartupTracePreference(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+    }
+
+    public StartupTracePreference(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    public StartupTracePreference(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public StartupTracePreference(Context context) {
+        super(context);
+    }
+}
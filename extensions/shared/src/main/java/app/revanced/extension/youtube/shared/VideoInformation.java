@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.MetadataStore;
 import app.revanced.extension.shared.utils.Utils;
 import app.revanced.extension.youtube.patches.utils.AlwaysRepeatPatch;
 
@@ -202,6 +203,7 @@ public final class VideoInformation {
         videoTitle = newlyLoadedVideoTitle;
         videoLength = newlyLoadedVideoLength;
         videoIsLiveStream = newlyLoadedLiveStreamValue;
+        MetadataStore.putVideo(newlyLoadedVideoId, newlyLoadedChannelId, newlyLoadedChannelName);
 
         Logger.printDebug(() ->
                 "channelId='" +
@@ -19,7 +19,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 
+import app.revanced.extension.shared.sponsorblock.SegmentEngine;
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.MetadataStore;
+import app.revanced.extension.shared.utils.ThreadLane;
 import app.revanced.extension.shared.utils.Utils;
 import app.revanced.extension.youtube.settings.Settings;
 import app.revanced.extension.youtube.shared.PlayerType;
@@ -53,6 +56,7 @@ public class SegmentPlaybackController {
      * Value is independent of device dpi.
      */
     private static final int HIGHLIGHT_SEGMENT_DRAW_BAR_WIDTH = 7;
+
     /**
      * Used to prevent re-showing a previously hidden skip button when exiting an embedded segment.
      * Only used when {@link Settings#SB_AUTO_HIDE_SKIP_BUTTON} is enabled.
@@ -61,12 +65,95 @@ public class SegmentPlaybackController {
      * contain the current video time.  Segment are removed when playback exits the segment.
      */
     private static final List<SponsorSegment> hiddenSkipSegmentsForCurrentVideoTime = new ArrayList<>();
+    /**
+     * {@link SegmentEngine#getInterval(long)} of the last video time {@link #updateHiddenSegments(long)} checked.
+     * If the interval is unchanged, no segment started or ended and the hidden segments are still current.
+     */
+    private static int hiddenSkipSegmentsInterval = -1;
     @NonNull
     private static String videoId = "";
     private static long videoLength = 0;
 
-    @Nullable
-    private static SponsorSegment[] segments;
+    /**
+     * Segments of the current video.
+     */
+    private static final SegmentEngine<SponsorSegment> segmentEngine = new SegmentEngine<>(new SegmentEngine.Adapter<>() {
+        @Override
+        public boolean isPlaybackSegment(@NonNull SponsorSegment segment) {
+            return segment.category.behaviour != CategoryBehaviour.SHOW_IN_SEEKBAR
+                    && segment.category.behaviour != CategoryBehaviour.IGNORE
+                    && segment.category != SegmentCategory.HIGHLIGHT;
+        }
+
+        @Override
+        public void drawSegment(@NonNull Canvas canvas, @NonNull SponsorSegment segment,
+                                float videoMillisecondsToPixels, float bottom) {
+            final float left = segment.start * videoMillisecondsToPixels;
+            final float right;
+            if (segment.category == SegmentCategory.HIGHLIGHT) {
+                right = left + getHighlightSegmentTimeBarScreenWidth();
+            } else {
+                right = segment.end * videoMillisecondsToPixels;
+            }
+            canvas.drawRect(left, 0, right, bottom, segment.category.paint);
+        }
+
+        @Nullable
+        @Override
+        public SponsorSegment[] fetchSegments(@NonNull String videoId) {
+            return SBRequester.prefetchSegments(videoId);
+        }
+
+        @Override
+        public void onScheduledHide(@NonNull SponsorSegment segmentToHide, long speedAdjustedTimeThreshold) {
+            if (VideoState.getCurrent() != VideoState.PLAYING) {
+                Logger.printDebug(() -> "Ignoring scheduled hide segment as video is paused: " + segmentToHide);
+                return;
+            }
+
+            final long videoTime = VideoInformation.getVideoTime();
+            if (!segmentToHide.endIsNear(videoTime, speedAdjustedTimeThreshold)) {
+                // current video time is not what's expected.  User paused playback
+                Logger.printDebug(() -> "Ignoring outdated scheduled hide: " + segmentToHide
+                        + " videoInformation time: " + videoTime);
+                return;
+            }
+            Logger.printDebug(() -> "Running scheduled hide segment: " + segmentToHide);
+            // Need more than just hide the skip button, as this may have been an embedded segment
+            // Instead call back into setVideoTime to check everything again.
+            // Should not use VideoInformation time as it is less accurate,
+            // but this scheduled handler was scheduled precisely so we can just use the segment end time
+            setSegmentCurrentlyPlaying(null);
+            setVideoTime(segmentToHide.end);
+        }
+
+        @Override
+        public void onScheduledUpcoming(@NonNull SponsorSegment segmentToSkip, long speedAdjustedTimeThreshold) {
+            if (VideoState.getCurrent() != VideoState.PLAYING) {
+                Logger.printDebug(() -> "Ignoring scheduled hide segment as video is paused: " + segmentToSkip);
+                return;
+            }
+
+            final long videoTime = VideoInformation.getVideoTime();
+            if (!segmentToSkip.startIsNear(videoTime, speedAdjustedTimeThreshold)) {
+                // current video time is not what's expected.  User paused playback
+                Logger.printDebug(() -> "Ignoring outdated scheduled segment: " + segmentToSkip
+                        + " videoInformation time: " + videoTime);
+                return;
+            }
+            if (segmentToSkip.shouldAutoSkip()) {
+                Logger.printDebug(() -> "Running scheduled skip segment: " + segmentToSkip);
+                skipSegment(segmentToSkip, false);
+            } else {
+                Logger.printDebug(() -> "Running scheduled show segment: " + segmentToSkip);
+                setSegmentCurrentlyPlaying(segmentToSkip);
+            }
+        }
+    });
+    /**
+     * Reused result of {@link SegmentEngine#findSegments}.
+     */
+    private static final SegmentEngine.FoundSegments<SponsorSegment> foundSegments = new SegmentEngine.FoundSegments<>();
     /**
      * Highlight segment, if one exists and the skip behavior is not set to {@link CategoryBehaviour#SHOW_IN_SEEKBAR}.
      */
@@ -83,17 +170,6 @@ public class SegmentPlaybackController {
      */
     @Nullable
     private static SponsorSegment segmentCurrentlyPlaying;
-    /**
-     * Currently playing manual skip segment that is scheduled to hide.
-     * This will always be NULL or equal to {@link #segmentCurrentlyPlaying}.
-     */
-    @Nullable
-    private static SponsorSegment scheduledHideSegment;
-    /**
-     * Upcoming segment that is scheduled to either autoskip or show the manual skip button.
-     */
-    @Nullable
-    private static SponsorSegment scheduledUpcomingSegment;
     /**
      * System time (in milliseconds) of when to hide the skip button of {@link #segmentCurrentlyPlaying}.
      * Value is zero if playback is not inside a segment ({@link #segmentCurrentlyPlaying} is null),
@@ -116,12 +192,12 @@ public class SegmentPlaybackController {
 
     @Nullable
     static SponsorSegment[] getSegments() {
-        return segments;
+        return segmentEngine.getSegments();
     }
 
     private static void setSegments(@NonNull SponsorSegment[] videoSegments) {
-        Arrays.sort(videoSegments);
-        segments = videoSegments;
+        segmentEngine.setSegments(videoSegments);
+        hiddenSkipSegmentsInterval = -1;
         calculateTimeWithoutSegments();
 
         if (SegmentCategory.HIGHLIGHT.behaviour == CategoryBehaviour.SKIP_AUTOMATICALLY
@@ -138,6 +214,7 @@ public class SegmentPlaybackController {
 
     static void addUnsubmittedSegment(@NonNull SponsorSegment segment) {
         Objects.requireNonNull(segment);
+        SponsorSegment[] segments = segmentEngine.getSegments();
         if (segments == null) {
             segments = new SponsorSegment[1];
         } else {
@@ -148,6 +225,7 @@ public class SegmentPlaybackController {
     }
 
     static void removeUnsubmittedSegments() {
+        final SponsorSegment[] segments = segmentEngine.getSegments();
         if (segments == null || segments.length == 0) {
             return;
         }
@@ -163,7 +241,7 @@ public class SegmentPlaybackController {
     }
 
     public static boolean videoHasSegments() {
-        return segments != null && segments.length > 0;
+        return segmentEngine.hasSegments();
     }
 
     /**
@@ -172,17 +250,16 @@ public class SegmentPlaybackController {
     public static void clearData() {
         videoId = "";
         videoLength = 0;
-        segments = null;
+        segmentEngine.clear();
         highlightSegment = null;
         highlightSegmentInitialShowEndTime = 0;
         timeWithoutSegments = null;
         segmentCurrentlyPlaying = null;
-        scheduledUpcomingSegment = null;
-        scheduledHideSegment = null;
         skipSegmentButtonEndTime = 0;
         toastSegmentSkipped = null;
         toastNumberOfSegmentsSkipped = 0;
         hiddenSkipSegmentsForCurrentVideoTime.clear();
+        hiddenSkipSegmentsInterval = -1;
     }
 
     /**
@@ -233,9 +310,9 @@ public class SegmentPlaybackController {
                 return;
             }
 
-            Utils.runOnBackgroundThread(() -> {
+            Utils.runOnBackgroundThread(ThreadLane.PLAYBACK, () -> {
                 try {
-                    executeDownloadSegments(newlyLoadedVideoId);
+                    executeDownloadSegments(newlyLoadedVideoId, true);
                 } catch (Exception e) {
                     Logger.printException(() -> "Failed to download segments", e);
                 }
@@ -245,6 +322,38 @@ public class SegmentPlaybackController {
         }
     }
 
+    /**
+     * Injection point.  Uses 'playback response' video id hook to prefetch segments.
+     * Called off the main thread, before the video is opened.
+     */
+    public static void preloadVideoId(@NonNull String newlyLoadedVideoId, boolean isShortAndOpeningOrPlaying) {
+        try {
+            if (!Settings.SB_ENABLED.get()) {
+                return;
+            }
+            // Segments are never used for Shorts.
+            if (isShortAndOpeningOrPlaying || VideoInformation.lastPlayerResponseIsShort()) {
+                return;
+            }
+            if (newlyLoadedVideoId.equals(videoId)) {
+                return;
+            }
+            if (Utils.isNetworkNotConnected()) {
+                return;
+            }
+            // The player response does not include the channel,
+            // so only videos opened before can be checked for a whitelisted channel.
+            String channelId = MetadataStore.getChannelIdForVideo(newlyLoadedVideoId);
+            if (channelId != null && Whitelist.isChannelWhitelistedSponsorBlock(channelId)) {
+                return;
+            }
+
+            segmentEngine.prefetch(newlyLoadedVideoId);
+        } catch (Exception ex) {
+            Logger.printException(() -> "preloadVideoId failure", ex);
+        }
+    }
+
     /**
      * Id of the last video opened.  Includes Shorts.
      *
@@ -268,11 +377,18 @@ public class SegmentPlaybackController {
 
     /**
      * Must be called off main thread
+     *
+     * @param usePrefetched If segments prefetched by {@link #preloadVideoId(String, boolean)} can be used.
      */
-    static void executeDownloadSegments(@NonNull String newlyLoadedVideoId) {
+    static void executeDownloadSegments(@NonNull String newlyLoadedVideoId, boolean usePrefetched) {
         Objects.requireNonNull(newlyLoadedVideoId);
         try {
-            SponsorSegment[] segments = SBRequester.getSegments(newlyLoadedVideoId);
+            SponsorSegment[] prefetchedSegments = usePrefetched
+                    ? segmentEngine.takePrefetchedSegments(newlyLoadedVideoId)
+                    : null;
+            SponsorSegment[] segments = prefetchedSegments != null
+                    ? prefetchedSegments
+                    : SBRequester.getSegments(newlyLoadedVideoId);
 
             Utils.runOnMainThread(() -> {
                 if (!newlyLoadedVideoId.equals(videoId)) {
@@ -314,14 +430,16 @@ public class SegmentPlaybackController {
         try {
             if (!Settings.SB_ENABLED.get()
                     || PlayerType.getCurrent().isNoneOrHidden() // Shorts playback.
-                    || segments == null || segments.length == 0) {
+                    || !segmentEngine.hasSegments()) {
                 return;
             }
             Logger.printDebug(() -> "setVideoTime: " + getFormattedTimeStamp(millis));
 
+            final float playbackSpeed = VideoInformation.getPlaybackSpeed();
+            segmentEngine.updatePlaybackPosition(millis, playbackSpeed);
+
             updateHiddenSegments(millis);
 
-            final float playbackSpeed = VideoInformation.getPlaybackSpeed();
             // Amount of time to look ahead for the next segment,
             // and the threshold to determine if a scheduled show/hide is at the correct video time when it's run.
             //
@@ -331,74 +449,14 @@ public class SegmentPlaybackController {
             // To debug the stale skip logic, set this to a very large value (5000 or more)
             // then try manually seeking just before playback reaches a segment skip.
             final long speedAdjustedTimeThreshold = (long) (playbackSpeed * 1000);
-            final long startTimerLookAheadThreshold = millis + speedAdjustedTimeThreshold;
-
-            SponsorSegment foundSegmentCurrentlyPlaying = null;
-            SponsorSegment foundUpcomingSegment = null;
-
-            for (final SponsorSegment segment : segments) {
-                if (segment.category.behaviour == CategoryBehaviour.SHOW_IN_SEEKBAR
-                        || segment.category.behaviour == CategoryBehaviour.IGNORE
-                        || segment.category == SegmentCategory.HIGHLIGHT) {
-                    continue;
-                }
-                if (segment.end <= millis) {
-                    continue; // past this segment
-                }
-
-                if (segment.start <= millis) {
-                    // we are in the segment!
-                    if (segment.shouldAutoSkip()) {
-                        skipSegment(segment, false);
-                        return; // must return, as skipping causes a recursive call back into this method
-                    }
 
-                    // first found segment, or it's an embedded segment and fully inside the outer segment
-                    if (foundSegmentCurrentlyPlaying == null || foundSegmentCurrentlyPlaying.containsSegment(segment)) {
-                        // If the found segment is not currently displayed, then do not show if the segment is nearly over.
-                        // This check prevents the skip button text from rapidly changing when multiple segments end at nearly the same time.
-                        // Also prevents showing the skip button if user seeks into the last 800ms of the segment.
-                        final long minMillisOfSegmentRemainingThreshold = 800;
-                        if (segmentCurrentlyPlaying == segment
-                                || !segment.endIsNear(millis, minMillisOfSegmentRemainingThreshold)) {
-                            foundSegmentCurrentlyPlaying = segment;
-                        } else {
-                            Logger.printDebug(() -> "Ignoring segment that ends very soon: " + segment);
-                        }
-                    }
-                    // Keep iterating and looking. There may be an upcoming autoskip,
-                    // or there may be another smaller segment nested inside this segment
-                    continue;
-                }
-
-                // segment is upcoming
-                if (startTimerLookAheadThreshold < segment.start) {
-                    break; // segment is not close enough to schedule, and no segments after this are of interest
-                }
-                if (segment.shouldAutoSkip()) { // upcoming autoskip
-                    foundUpcomingSegment = segment;
-                    break; // must stop here
-                }
-
-                // upcoming manual skip
-
-                // do not schedule upcoming segment, if it is not fully contained inside the current segment
-                if ((foundSegmentCurrentlyPlaying == null || foundSegmentCurrentlyPlaying.containsSegment(segment))
-                        // use the most inner upcoming segment
-                        && (foundUpcomingSegment == null || foundUpcomingSegment.containsSegment(segment))) {
-
-                    // Only schedule, if the segment start time is not near the end time of the current segment.
-                    // This check is needed to prevent scheduled hide and show from clashing with each other.
-                    // Instead the upcoming segment will be handled when the current segment scheduled hide calls back into this method.
-                    final long minTimeBetweenStartEndOfSegments = 1000;
-                    if (foundSegmentCurrentlyPlaying == null
-                            || !foundSegmentCurrentlyPlaying.endIsNear(segment.start, minTimeBetweenStartEndOfSegments)) {
-                        foundUpcomingSegment = segment;
-                    } else {
-                        Logger.printDebug(() -> "Not scheduling segment (start time is near end of current segment): " + segment);
-                    }
-                }
+            segmentEngine.findSegments(millis, speedAdjustedTimeThreshold, segmentCurrentlyPlaying, foundSegments);
+            if (foundSegments.segmentToSkip != null) {
+                skipSegment(foundSegments.segmentToSkip, false);
+                return; // must return, as skipping causes a recursive call back into this method
             }
+            final SponsorSegment foundSegmentCurrentlyPlaying = foundSegments.segmentCurrentlyPlaying;
+            final SponsorSegment foundUpcomingSegment = foundSegments.upcomingSegment;
 
             if (highlightSegment != null) {
                 if (millis < DURATION_TO_SHOW_SKIP_BUTTON || (highlightSegmentInitialShowEndTime != 0
@@ -426,81 +484,7 @@ public class SegmentPlaybackController {
                             ? foundSegmentCurrentlyPlaying
                             : null;
 
-            if (scheduledHideSegment != segmentToHide) {
-                if (segmentToHide == null) {
-                    Logger.printDebug(() -> "Clearing scheduled hide: " + scheduledHideSegment);
-                    scheduledHideSegment = null;
-                } else {
-                    scheduledHideSegment = segmentToHide;
-                    Logger.printDebug(() -> "Scheduling hide segment: " + segmentToHide + " playbackSpeed: " + playbackSpeed);
-                    final long delayUntilHide = (long) ((segmentToHide.end - millis) / playbackSpeed);
-                    Utils.runOnMainThreadDelayed(() -> {
-                        if (scheduledHideSegment != segmentToHide) {
-                            Logger.printDebug(() -> "Ignoring old scheduled hide segment: " + segmentToHide);
-                            return;
-                        }
-                        scheduledHideSegment = null;
-                        if (VideoState.getCurrent() != VideoState.PLAYING) {
-                            Logger.printDebug(() -> "Ignoring scheduled hide segment as video is paused: " + segmentToHide);
-                            return;
-                        }
-
-                        final long videoTime = VideoInformation.getVideoTime();
-                        if (!segmentToHide.endIsNear(videoTime, speedAdjustedTimeThreshold)) {
-                            // current video time is not what's expected.  User paused playback
-                            Logger.printDebug(() -> "Ignoring outdated scheduled hide: " + segmentToHide
-                                    + " videoInformation time: " + videoTime);
-                            return;
-                        }
-                        Logger.printDebug(() -> "Running scheduled hide segment: " + segmentToHide);
-                        // Need more than just hide the skip button, as this may have been an embedded segment
-                        // Instead call back into setVideoTime to check everything again.
-                        // Should not use VideoInformation time as it is less accurate,
-                        // but this scheduled handler was scheduled precisely so we can just use the segment end time
-                        setSegmentCurrentlyPlaying(null);
-                        setVideoTime(segmentToHide.end);
-                    }, delayUntilHide);
-                }
-            }
-
-            if (scheduledUpcomingSegment != foundUpcomingSegment) {
-                if (foundUpcomingSegment == null) {
-                    Logger.printDebug(() -> "Clearing scheduled segment: " + scheduledUpcomingSegment);
-                    scheduledUpcomingSegment = null;
-                } else {
-                    scheduledUpcomingSegment = foundUpcomingSegment;
-                    final SponsorSegment segmentToSkip = foundUpcomingSegment;
-
-                    Logger.printDebug(() -> "Scheduling segment: " + segmentToSkip + " playbackSpeed: " + playbackSpeed);
-                    final long delayUntilSkip = (long) ((segmentToSkip.start - millis) / playbackSpeed);
-                    Utils.runOnMainThreadDelayed(() -> {
-                        if (scheduledUpcomingSegment != segmentToSkip) {
-                            Logger.printDebug(() -> "Ignoring old scheduled segment: " + segmentToSkip);
-                            return;
-                        }
-                        scheduledUpcomingSegment = null;
-                        if (VideoState.getCurrent() != VideoState.PLAYING) {
-                            Logger.printDebug(() -> "Ignoring scheduled hide segment as video is paused: " + segmentToSkip);
-                            return;
-                        }
-
-                        final long videoTime = VideoInformation.getVideoTime();
-                        if (!segmentToSkip.startIsNear(videoTime, speedAdjustedTimeThreshold)) {
-                            // current video time is not what's expected.  User paused playback
-                            Logger.printDebug(() -> "Ignoring outdated scheduled segment: " + segmentToSkip
-                                    + " videoInformation time: " + videoTime);
-                            return;
-                        }
-                        if (segmentToSkip.shouldAutoSkip()) {
-                            Logger.printDebug(() -> "Running scheduled skip segment: " + segmentToSkip);
-                            skipSegment(segmentToSkip, false);
-                        } else {
-                            Logger.printDebug(() -> "Running scheduled show segment: " + segmentToSkip);
-                            setSegmentCurrentlyPlaying(segmentToSkip);
-                        }
-                    }, delayUntilSkip);
-                }
-            }
+            segmentEngine.scheduleSegments(segmentToHide, foundUpcomingSegment, speedAdjustedTimeThreshold);
         } catch (Exception e) {
             Logger.printException(() -> "setVideoTime failure", e);
         }
@@ -510,6 +494,12 @@ public class SegmentPlaybackController {
      * Removes all previously hidden segments that are not longer contained in the given video time.
      */
     private static void updateHiddenSegments(long currentVideoTime) {
+        final int interval = segmentEngine.getInterval(currentVideoTime);
+        if (interval == hiddenSkipSegmentsInterval) {
+            return; // No segment has started or ended since the last check.
+        }
+        hiddenSkipSegmentsInterval = interval;
+
         // If you want to maintain compatibility with RVX Android 6, use Iterator.
         hiddenSkipSegmentsForCurrentVideoTime.removeIf(segment -> {
             if (!segment.containsTime(currentVideoTime)) {
@@ -632,8 +622,7 @@ public class SegmentPlaybackController {
             lastSegmentSkipped = segmentToSkip;
             lastSegmentSkippedTime = now;
             setSegmentCurrentlyPlaying(null);
-            scheduledHideSegment = null;
-            scheduledUpcomingSegment = null;
+            segmentEngine.clearScheduledSegments();
             if (segmentToSkip == highlightSegment) {
                 highlightSegmentInitialShowEndTime = 0;
             }
@@ -650,7 +639,7 @@ public class SegmentPlaybackController {
             if (!userManuallySkipped) {
                 // check for any smaller embedded segments, and count those as autoskipped
                 final boolean showSkipToast = Settings.SB_TOAST_ON_SKIP.get();
-                for (final SponsorSegment otherSegment : Objects.requireNonNull(segments)) {
+                for (final SponsorSegment otherSegment : Objects.requireNonNull(segmentEngine.getSegments())) {
                     if (segmentToSkip.end < otherSegment.start) {
                         break; // no other segments can be contained
                     }
@@ -779,6 +768,7 @@ public class SegmentPlaybackController {
 
     @SuppressLint("DefaultLocale")
     private static void calculateTimeWithoutSegments() {
+        final SponsorSegment[] segments = segmentEngine.getSegments();
         if (!Settings.SB_VIDEO_LENGTH_WITHOUT_SEGMENTS.get() || videoLength <= 0
                 || segments == null || segments.length == 0) {
             timeWithoutSegments = null;
@@ -835,25 +825,11 @@ public class SegmentPlaybackController {
      */
     public static void drawSponsorTimeBars(final Canvas canvas, final float posY) {
         try {
-            if (segments == null) return;
+            if (!segmentEngine.hasSegments()) return;
             if (videoLength <= 0) return;
 
-            final int thicknessDiv2 = sponsorBarThickness / 2; // rounds down
-            final float top = posY - (sponsorBarThickness - thicknessDiv2);
-            final float bottom = posY + thicknessDiv2;
-            final float videoMillisecondsToPixels = (1f / videoLength) * (sponsorAbsoluteBarRight - sponsorBarAbsoluteLeft);
-            final float leftPadding = sponsorBarAbsoluteLeft;
-
-            for (SponsorSegment segment : segments) {
-                final float left = leftPadding + segment.start * videoMillisecondsToPixels;
-                final float right;
-                if (segment.category == SegmentCategory.HIGHLIGHT) {
-                    right = left + getHighlightSegmentTimeBarScreenWidth();
-                } else {
-                    right = leftPadding + segment.end * videoMillisecondsToPixels;
-                }
-                canvas.drawRect(left, top, right, bottom, segment.category.paint);
-            }
+            segmentEngine.drawSegmentBar(canvas, posY, sponsorBarAbsoluteLeft, sponsorAbsoluteBarRight, sponsorBarThickness,
+                    getHighlightSegmentTimeBarScreenWidth(), videoLength, SegmentCategory.getPaintVersion());
         } catch (Exception ex) {
             Logger.printException(() -> "drawSponsorTimeBars failure", ex);
         }
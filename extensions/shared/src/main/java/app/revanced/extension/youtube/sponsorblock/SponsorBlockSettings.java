@@ -16,6 +16,7 @@ import java.util.UUID;
 
 import app.revanced.extension.shared.settings.Setting;
 import app.revanced.extension.shared.utils.Logger;
+import app.revanced.extension.shared.utils.StartupTrace;
 import app.revanced.extension.shared.utils.Utils;
 import app.revanced.extension.youtube.settings.Settings;
 import app.revanced.extension.youtube.settings.preference.SponsorBlockSettingsPreference;
@@ -247,6 +248,6 @@ public class SponsorBlockSettings {
         }
         initialized = true;
 
-        SegmentCategory.updateEnabledCategories();
+        StartupTrace.trace("SponsorBlockSettings", SegmentCategory::updateEnabledCategories);
     }
 }
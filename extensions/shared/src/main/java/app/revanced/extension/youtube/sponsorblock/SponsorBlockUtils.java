@@ -226,7 +226,7 @@ public class SponsorBlockUtils {
             clearUnsubmittedSegmentTimes();
             Utils.runOnBackgroundThread(() -> {
                 SBRequester.submitSegments(videoId, segmentCategory.keyValue, start, end, videoLength);
-                SegmentPlaybackController.executeDownloadSegments(videoId);
+                SegmentPlaybackController.executeDownloadSegments(videoId, false);
             });
         } catch (Exception e) {
             Logger.printException(() -> "Unable to submit segment", e);
@@ -118,6 +118,16 @@ public enum SegmentCategory {
      */
     public static String sponsorBlockAPIFetchCategories = "[]";
 
+    /**
+     * Incremented when the paint color of any category changes.
+     * Not initialized here, as it's first changed while the categories are created.
+     */
+    private static int paintVersion;
+
+    public static int getPaintVersion() {
+        return paintVersion;
+    }
+
     static {
         for (SegmentCategory value : categoriesWithoutUnsubmitted)
             mValuesMap.put(value.keyValue, value);
@@ -283,6 +293,7 @@ public enum SegmentCategory {
     private void updateColor() {
         color = applyOpacityToColor(color, opacitySetting.get());
         paint.setColor(color);
+        paintVersion++;
     }
 
     /**
@@ -7,10 +7,11 @@ import androidx.annotation.Nullable;
 
 import java.util.Objects;
 
+import app.revanced.extension.shared.sponsorblock.objects.BaseSponsorSegment;
 import app.revanced.extension.shared.utils.StringRef;
 import app.revanced.extension.youtube.sponsorblock.SegmentPlaybackController;
 
-public class SponsorSegment implements Comparable<SponsorSegment> {
+public class SponsorSegment extends BaseSponsorSegment {
     public enum SegmentVote {
         UPVOTE(sf("revanced_sb_vote_upvote"), 1, false),
         DOWNVOTE(sf("revanced_sb_vote_downvote"), 0, true),
@@ -38,67 +39,21 @@ public class SponsorSegment implements Comparable<SponsorSegment> {
 
     @NonNull
     public final SegmentCategory category;
-    /**
-     * NULL if segment is unsubmitted
-     */
-    @Nullable
-    public final String UUID;
-    public final long start;
-    public final long end;
-    public final boolean isLocked;
-    public boolean didAutoSkipped = false;
     /**
      * If this segment has been counted as 'skipped'
      */
     public boolean recordedAsSkipped = false;
 
     public SponsorSegment(@NonNull SegmentCategory category, @Nullable String UUID, long start, long end, boolean isLocked) {
+        super(UUID, start, end, isLocked);
         this.category = category;
-        this.UUID = UUID;
-        this.start = start;
-        this.end = end;
-        this.isLocked = isLocked;
     }
 
+    @Override
     public boolean shouldAutoSkip() {
         return category.behaviour.skipAutomatically && !(didAutoSkipped && category.behaviour == CategoryBehaviour.SKIP_AUTOMATICALLY_ONCE);
     }
 
-    /**
-     * @param nearThreshold threshold to declare the time parameter is near this segment. Must be a positive number
-     */
-    public boolean startIsNear(long videoTime, long nearThreshold) {
-        return Math.abs(start - videoTime) <= nearThreshold;
-    }
-
-    /**
-     * @param nearThreshold threshold to declare the time parameter is near this segment. Must be a positive number
-     */
-    public boolean endIsNear(long videoTime, long nearThreshold) {
-        return Math.abs(end - videoTime) <= nearThreshold;
-    }
-
-    /**
-     * @return if the time parameter is within this segment
-     */
-    public boolean containsTime(long videoTime) {
-        return start <= videoTime && videoTime < end;
-    }
-
-    /**
-     * @return if the segment is completely contained inside this segment
-     */
-    public boolean containsSegment(SponsorSegment other) {
-        return start <= other.start && other.end <= end;
-    }
-
-    /**
-     * @return the length of this segment, in milliseconds.  Always a positive number.
-     */
-    public long length() {
-        return end - start;
-    }
-
     /**
      * @return 'skip segment' UI overlay button text
      */
@@ -115,13 +70,6 @@ public class SponsorSegment implements Comparable<SponsorSegment> {
         return category.getSkippedToastText(start, SegmentPlaybackController.getVideoLength()).toString();
     }
 
-    @Override
-    public int compareTo(SponsorSegment o) {
-        // If both segments start at the same time, then sort with the longer segment first.
-        // This keeps the seekbar drawing correct since it draws the segments using the sorted order.
-        return start == o.start ? Long.compare(o.length(), length()) : Long.compare(start, o.start);
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
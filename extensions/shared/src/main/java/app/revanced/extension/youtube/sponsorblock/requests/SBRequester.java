@@ -51,17 +51,46 @@ public class SBRequester {
     private SBRequester() {
     }
 
-    private static void handleConnectionError(@NonNull String toastMessage, @Nullable Exception ex) {
-        if (Settings.SB_TOAST_ON_CONNECTION_ERROR.get()) {
+    /**
+     * @param showToast If the error can be shown to the user.
+     *                  If false, the error is only logged.
+     */
+    private static void handleConnectionError(@NonNull String toastMessage, @Nullable Exception ex, boolean showToast) {
+        if (showToast && Settings.SB_TOAST_ON_CONNECTION_ERROR.get()) {
             Utils.showToastShort(toastMessage);
         }
         if (ex != null) {
             Logger.printInfo(() -> toastMessage, ex);
+        } else if (!showToast) {
+            Logger.printDebug(() -> toastMessage);
         }
     }
 
     @NonNull
     public static SponsorSegment[] getSegments(@NonNull String videoId) {
+        SponsorSegment[] segments = fetchSegments(videoId, true);
+        return segments == null ? new SponsorSegment[0] : segments;
+    }
+
+    /**
+     * Fetches the segments of a video that is not yet opened.
+     * Connection errors are only logged, as the video may never be opened.
+     *
+     * @return The segments of the video, or NULL if the segments could not be fetched.
+     * The video has no segments if the array is empty.
+     */
+    @Nullable
+    public static SponsorSegment[] prefetchSegments(@NonNull String videoId) {
+        return fetchSegments(videoId, false);
+    }
+
+    /**
+     * @param showToast If connection errors can be shown to the user.
+     * @return The segments of the video, or NULL if the segments could not be fetched.
+     * The video has no segments if the array is empty.
+     */
+    @Nullable
+    private static SponsorSegment[] fetchSegments(@NonNull String videoId, boolean showToast) {
         Utils.verifyOffMainThread();
         List<SponsorSegment> segments = new ArrayList<>();
         try {
@@ -99,16 +128,20 @@ public class SBRequester {
                 // no segments are found.  a normal response
                 Logger.printDebug(() -> "No segments found for video: " + videoId);
             } else {
-                handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_status", responseCode), null);
+                handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_status", responseCode), null, showToast);
                 connection.disconnect(); // something went wrong, might as well disconnect
+                return null;
             }
         } catch (SocketTimeoutException ex) {
-            handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_timeout"), ex);
+            handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_timeout"), ex, showToast);
+            return null;
         } catch (IOException ex) {
-            handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_generic"), ex);
+            handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_generic"), ex, showToast);
+            return null;
         } catch (Exception ex) {
             // Should never happen
             Logger.printException(() -> "getSegments failure", ex);
+            return null;
         }
 
         return segments.toArray(new SponsorSegment[0]);
@@ -2,6 +2,9 @@ package app.revanced.extension.youtube.whitelist;
 
 import java.io.Serializable;
 
+/**
+ * Must remain {@link Serializable}, to read whitelists saved in the legacy format.
+ */
 public final class VideoChannel implements Serializable {
     private final String channelName;
     private final String channelId;
@@ -15,25 +15,22 @@ import android.graphics.drawable.Drawable;
 import android.widget.Button;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.EnumMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.InflaterInputStream;
 
 import app.revanced.extension.shared.utils.Logger;
 import app.revanced.extension.shared.utils.ResourceUtils;
+import app.revanced.extension.shared.utils.StartupTrace;
 import app.revanced.extension.shared.utils.Utils;
 import app.revanced.extension.youtube.patches.utils.PatchStatus;
 import app.revanced.extension.youtube.shared.VideoInformation;
@@ -42,7 +39,22 @@ import app.revanced.extension.youtube.utils.ThemeUtils;
 @SuppressWarnings("deprecation")
 public class Whitelist {
     private static final String ZERO_WIDTH_SPACE_CHARACTER = "\u200B";
-    private static final Map<WhitelistType, ArrayList<VideoChannel>> whitelistMap = parseWhitelist();
+    /**
+     * Preference key of the legacy whitelist format,
+     * a deflated and Base64 encoded Java serialized {@code ArrayList<VideoChannel>}.
+     * Only read to migrate to the current format.
+     */
+    private static final String LEGACY_CHANNELS_KEY = "channels";
+    /**
+     * Each whitelisted channel is saved as its own preference with this key prefix and the channel id,
+     * and the channel name as the value.
+     * Adding or removing a channel only changes that one entry.
+     */
+    private static final String CHANNEL_KEY_PREFIX = "channel_";
+    /**
+     * Channel id to channel, for each whitelist type.
+     */
+    private static final Map<WhitelistType, Map<String, VideoChannel>> whitelistMap = parseWhitelist();
 
     private static final WhitelistType whitelistTypePlaybackSpeed = WhitelistType.PLAYBACK_SPEED;
     private static final WhitelistType whitelistTypeSponsorBlock = WhitelistType.SPONSOR_BLOCK;
@@ -150,50 +162,76 @@ public class Whitelist {
         }
     }
 
-    /**
-     * @noinspection unchecked
-     */
-    private static Map<WhitelistType, ArrayList<VideoChannel>> parseWhitelist() {
+    private static Map<WhitelistType, Map<String, VideoChannel>> parseWhitelist() {
+        final long start = StartupTrace.begin("Whitelist");
         WhitelistType[] whitelistTypes = WhitelistType.values();
-        Map<WhitelistType, ArrayList<VideoChannel>> whitelistMap = new EnumMap<>(WhitelistType.class);
+        Map<WhitelistType, Map<String, VideoChannel>> whitelistMap = new EnumMap<>(WhitelistType.class);
 
         for (WhitelistType whitelistType : whitelistTypes) {
-            SharedPreferences preferences = getPreferences(whitelistType.getPreferencesName());
-            String serializedChannels = preferences.getString("channels", null);
-            if (serializedChannels == null) {
-                whitelistMap.put(whitelistType, new ArrayList<>());
-                continue;
-            }
+            Map<String, VideoChannel> channels = new ConcurrentHashMap<>();
             try {
-                Object channelsObject = deserialize(serializedChannels);
-                ArrayList<VideoChannel> deserializedChannels = (ArrayList<VideoChannel>) channelsObject;
-                whitelistMap.put(whitelistType, deserializedChannels);
+                SharedPreferences preferences = getPreferences(whitelistType.getPreferencesName());
+                for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+                    final String key = entry.getKey();
+                    if (key.startsWith(CHANNEL_KEY_PREFIX) && entry.getValue() instanceof String channelName) {
+                        final String channelId = key.substring(CHANNEL_KEY_PREFIX.length());
+                        channels.put(channelId, new VideoChannel(channelName, channelId));
+                    }
+                }
+
+                String serializedChannels = preferences.getString(LEGACY_CHANNELS_KEY, null);
+                if (serializedChannels != null) {
+                    migrateLegacyWhitelist(preferences, serializedChannels, channels);
+                }
             } catch (Exception ex) {
                 Logger.printException(() -> "parseWhitelist failure", ex);
             }
+            whitelistMap.put(whitelistType, channels);
         }
+        StartupTrace.end("Whitelist", start);
         return whitelistMap;
     }
 
-    private static boolean isWhitelisted(WhitelistType whitelistType, String channelId) {
-        for (VideoChannel channel : getWhitelistedChannels(whitelistType)) {
-            if (channel.getChannelId().equals(channelId)) {
-                return true;
-            }
+    /**
+     * Converts the Java serialized whitelist to one preference per channel,
+     * then removes the legacy preference.
+     *
+     * @noinspection unchecked
+     */
+    private static void migrateLegacyWhitelist(SharedPreferences preferences, String serializedChannels,
+                                               Map<String, VideoChannel> channels) {
+        if (!(deserialize(serializedChannels) instanceof ArrayList<?> channelsObject)) {
+            // Keep the legacy data, in case it can be read by a later version.
+            Logger.printException(() -> "Could not migrate legacy whitelist");
+            return;
         }
-        return false;
+
+        SharedPreferences.Editor editor = preferences.edit();
+        for (VideoChannel channel : (ArrayList<VideoChannel>) channelsObject) {
+            final String channelId = channel.getChannelId();
+            if (channelId == null || channelId.isEmpty()) continue;
+            final String channelName = channelNameOrId(channel.getChannelName(), channelId);
+            channels.put(channelId, new VideoChannel(channelName, channelId));
+            editor.putString(CHANNEL_KEY_PREFIX + channelId, channelName);
+        }
+        editor.remove(LEGACY_CHANNELS_KEY);
+        editor.apply();
+        Logger.printDebug(() -> "Migrated legacy whitelist: " + channels.size() + " channels");
+    }
+
+    private static boolean isWhitelisted(WhitelistType whitelistType, String channelId) {
+        return channelId != null && whitelistMap.get(whitelistType).containsKey(channelId);
     }
 
-    private static void addToWhitelist(WhitelistType whitelistType, String channelId, String channelName) {
-        final VideoChannel channel = new VideoChannel(channelName, channelId);
-        ArrayList<VideoChannel> whitelisted = getWhitelistedChannels(whitelistType);
-        for (VideoChannel whitelistedChannel : whitelisted) {
-            if (whitelistedChannel.getChannelId().equals(channel.getChannelId()))
-                return;
+    private static void addToWhitelist(WhitelistType whitelistType, String channelId, @Nullable String channelName) {
+        Map<String, VideoChannel> channels = whitelistMap.get(whitelistType);
+        if (channels.containsKey(channelId)) {
+            return;
         }
-        whitelisted.add(channel);
+        channelName = channelNameOrId(channelName, channelId);
+        channels.put(channelId, new VideoChannel(channelName, channelId));
         String friendlyName = whitelistType.getFriendlyName();
-        if (updateWhitelist(whitelistType, whitelisted)) {
+        if (saveChannel(whitelistType, channelId, channelName)) {
             showToastShort(str("revanced_whitelist_added", channelName, friendlyName));
         } else {
             showToastShort(str("revanced_whitelist_add_failed", channelName, friendlyName));
@@ -201,39 +239,53 @@ public class Whitelist {
     }
 
     public static void removeFromWhitelist(WhitelistType whitelistType, String channelId) {
-        ArrayList<VideoChannel> whitelisted = getWhitelistedChannels(whitelistType);
-        Iterator<VideoChannel> iterator = whitelisted.iterator();
-        String channelName = "";
-        while (iterator.hasNext()) {
-            VideoChannel channel = iterator.next();
-            if (channel.getChannelId().equals(channelId)) {
-                channelName = channel.getChannelName();
-                iterator.remove();
-                break;
-            }
-        }
+        VideoChannel channel = whitelistMap.get(whitelistType).remove(channelId);
+        String channelName = channel == null ? "" : channel.getChannelName();
         String friendlyName = whitelistType.getFriendlyName();
-        if (updateWhitelist(whitelistType, whitelisted)) {
+        if (saveChannel(whitelistType, channelId, null)) {
             showToastShort(str("revanced_whitelist_removed", channelName, friendlyName));
         } else {
             showToastShort(str("revanced_whitelist_remove_failed", channelName, friendlyName));
         }
     }
 
-    private static boolean updateWhitelist(WhitelistType whitelistType, ArrayList<VideoChannel> channels) {
-        SharedPreferences.Editor editor = getPreferences(whitelistType.getPreferencesName()).edit();
+    /**
+     * A null channel name would remove the saved channel, so the channel id is used instead.
+     */
+    @NonNull
+    private static String channelNameOrId(@Nullable String channelName, @NonNull String channelId) {
+        return channelName == null || channelName.isEmpty() ? channelId : channelName;
+    }
 
-        final String channelName = serialize(channels);
-        if (channelName != null && !channelName.isEmpty()) {
-            editor.putString("channels", channelName);
+    /**
+     * Saves or removes a single channel.
+     *
+     * @param channelName Name of the channel, or null to remove the channel.
+     */
+    private static boolean saveChannel(WhitelistType whitelistType, String channelId, @Nullable String channelName) {
+        try {
+            SharedPreferences.Editor editor = getPreferences(whitelistType.getPreferencesName()).edit();
+            final String key = CHANNEL_KEY_PREFIX + channelId;
+            if (channelName == null) {
+                editor.remove(key);
+            } else {
+                editor.putString(key, channelName);
+            }
             editor.apply();
             return true;
+        } catch (Exception ex) {
+            Logger.printException(() -> "saveChannel failure", ex);
         }
         return false;
     }
 
+    /**
+     * @return A copy of the whitelisted channels, sorted by channel name.
+     */
     public static ArrayList<VideoChannel> getWhitelistedChannels(WhitelistType whitelistType) {
-        return whitelistMap.get(whitelistType);
+        ArrayList<VideoChannel> channels = new ArrayList<>(whitelistMap.get(whitelistType).values());
+        channels.sort((first, second) -> String.CASE_INSENSITIVE_ORDER.compare(first.getChannelName(), second.getChannelName()));
+        return channels;
     }
 
     private static SharedPreferences getPreferences(@NonNull String prefName) {
@@ -241,23 +293,6 @@ public class Whitelist {
         return context.getSharedPreferences(prefName, Context.MODE_PRIVATE);
     }
 
-    private static String serialize(Serializable obj) {
-        try {
-            if (obj != null) {
-                ByteArrayOutputStream serialObj = new ByteArrayOutputStream();
-                Deflater def = new Deflater(Deflater.BEST_COMPRESSION);
-                ObjectOutputStream objStream =
-                        new ObjectOutputStream(new DeflaterOutputStream(serialObj, def));
-                objStream.writeObject(obj);
-                objStream.close();
-                return encodeBytes(serialObj.toByteArray());
-            }
-        } catch (IOException ex) {
-            Logger.printException(() -> "Serialization error: " + ex.getMessage(), ex);
-        }
-        return null;
-    }
-
     private static Object deserialize(@NonNull String str) {
         try {
             final ByteArrayInputStream serialObj = new ByteArrayInputStream(decodeBytes(str));
@@ -269,14 +304,6 @@ public class Whitelist {
         return null;
     }
 
-    private static String encodeBytes(byte[] bytes) {
-        if (isSDKAbove(26)) {
-            return Base64.getEncoder().encodeToString(bytes);
-        } else {
-            return new String(bytes, StandardCharsets.UTF_8);
-        }
-    }
-
     private static byte[] decodeBytes(String str) {
         if (isSDKAbove(26)) {
             return Base64.getDecoder().decode(str.getBytes(StandardCharsets.UTF_8));
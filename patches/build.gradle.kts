@@ -29,6 +29,19 @@ tasks {
         classpath = sourceSets["main"].runtimeClasspath
         mainClass.set("app.revanced.generator.MainKt")
     }
+    register<JavaExec>("benchmarkPatches") {
+        description = "Apply the patches to an APK and report the time each patch takes"
+
+        dependsOn(build)
+
+        classpath = sourceSets["main"].runtimeClasspath
+        mainClass.set("app.revanced.generator.PatchBenchmarkKt")
+        // Usage: ./gradlew benchmarkPatches -Papk=path/to/app.apk [-PbenchmarkPatches="Patch A,Patch B"]
+        args = listOfNotNull(
+            providers.gradleProperty("apk").orNull,
+            providers.gradleProperty("benchmarkPatches").orNull,
+        )
+    }
     // Used by gradle-semantic-release-plugin.
     publish {
         dependsOn("generatePatchesFiles")
@@ -0,0 +1,254 @@
+package app.revanced.generator
+
+import app.revanced.patcher.Patcher
+import app.revanced.patcher.PatcherConfig
+import app.revanced.patcher.patch.BytecodePatch
+import app.revanced.patcher.patch.Patch
+import app.revanced.patcher.patch.ResourcePatch
+import app.revanced.patcher.patch.loadPatchesFromJar
+import com.google.gson.GsonBuilder
+import kotlinx.coroutines.runBlocking
+import java.io.File
+import java.lang.management.ManagementFactory
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Applies the patches to an APK and reports the time, allocation and fingerprint counts of each patch.
+ *
+ * Arguments: the path of the APK, and optionally a comma separated list of patch names to apply.
+ * By default, all patches that are used by default and compatible with the APK are applied.
+ *
+ * The execute and finalize blocks of each patch, including dependencies, are reported as separate rows.
+ * Allocation is only counted on the thread collecting the patcher results, which runs the blocks.
+ * Threads started by a patch are not counted.
+ * Writing the patched files is reported as a separate phase.
+ */
+internal fun main(args: Array<String>) {
+    val apkFile = File(args.getOrNull(0) ?: throw IllegalArgumentException("Missing the path of the APK"))
+    val patchNames = args.getOrNull(1)?.split(",")?.map(String::trim)?.toSet()
+
+    val bundle = loadPatchesFromJar(
+        setOf(File("build/libs/").listFiles { file ->
+            val fileName = file.name
+            !fileName.contains("javadoc") &&
+                    !fileName.contains("sources") &&
+                    fileName.endsWith(".rvp")
+        }!!.first()),
+    ).also { loader ->
+        if (loader.isEmpty()) throw IllegalStateException("No patches found")
+    }
+
+    PatchBenchmark(apkFile, bundle, patchNames).run()
+}
+
+private class PatchBenchmark(
+    private val apkFile: File,
+    private val bundle: Set<Patch<*>>,
+    private val patchNames: Set<String>?,
+) {
+    private class Measurement(
+        val name: String,
+        val type: String,
+        val block: String,
+        val millis: Long,
+        val collectorThreadAllocatedBytes: Long,
+        val fingerprintSearches: Long,
+        val fingerprintCacheHits: Long,
+        val fingerprintMillis: Long,
+        var error: String?,
+    )
+
+    private class Report(
+        val apk: String,
+        val packageName: String,
+        val packageVersion: String,
+        val loadMillis: Long,
+        val patchMillis: Long,
+        val finalizeMillis: Long,
+        val writeMillis: Long,
+        val patches: List<Measurement>,
+    )
+
+    /**
+     * Reads the counters of [app.revanced.util.fingerprint.FingerprintStatistics]
+     * from the class loader the patches were loaded with.
+     */
+    private val fingerprintStatistics by lazy {
+        val statisticsClass = Class.forName(
+            "app.revanced.util.fingerprint.FingerprintStatistics",
+            true,
+            bundle.first().javaClass.classLoader,
+        )
+        listOf("searches", "cacheHits", "resolveNanos").map { name ->
+            statisticsClass.getField(name).get(null) as AtomicLong
+        }
+    }
+
+    private val threadBean = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+
+    private fun allocatedBytes() = threadBean.getThreadAllocatedBytes(Thread.currentThread().id)
+
+    private fun Patch<*>.type() = when (this) {
+        is BytecodePatch -> "bytecode"
+        is ResourcePatch -> "resource"
+        else -> "raw resource"
+    }
+
+    private val measurements = mutableListOf<Measurement>()
+
+    /**
+     * Key: patch, Value: the last measured block of the patch.
+     */
+    private val lastMeasurements = HashMap<Patch<*>, Measurement>()
+
+    /**
+     * The time the first finalize block started, or 0 if no finalize block ran yet.
+     */
+    private var finalizeStart = 0L
+
+    /**
+     * Replaces the execute and finalize blocks of the patch and its dependencies with blocks that measure them.
+     *
+     * The patcher only reports a patch with a finalize block after it was finalized,
+     * so the time between two results does not belong to a single block.
+     */
+    private fun Patch<*>.measureBlocks(measuredPatches: MutableSet<Patch<*>>) {
+        if (!measuredPatches.add(this)) return
+
+        dependencies.forEach { it.measureBlocks(measuredPatches) }
+        measureBlock("executeBlock")
+        measureBlock("finalizeBlock")
+    }
+
+    private fun Patch<*>.measureBlock(fieldName: String) {
+        val field = Patch::class.java.getDeclaredField(fieldName).apply { isAccessible = true }
+
+        @Suppress("UNCHECKED_CAST")
+        val block = field.get(this) as ((Any?, Any?) -> Unit)? ?: return
+        val blockName = fieldName.removeSuffix("Block")
+
+        val measuredBlock = { patch: Any?, context: Any? ->
+            measure(this, blockName) { block(patch, context) }
+        }
+        field.set(this, measuredBlock)
+    }
+
+    private inline fun measure(patch: Patch<*>, blockName: String, block: () -> Unit) {
+        val start = System.nanoTime()
+        if (blockName == "finalize" && finalizeStart == 0L) finalizeStart = start
+        val startAllocatedBytes = allocatedBytes()
+        val counters = fingerprintStatistics.map(AtomicLong::get)
+
+        try {
+            block()
+        } finally {
+            val newCounters = fingerprintStatistics.map(AtomicLong::get)
+            val measurement = Measurement(
+                patch.name ?: patch.toString(),
+                patch.type(),
+                blockName,
+                (System.nanoTime() - start) / 1_000_000,
+                allocatedBytes() - startAllocatedBytes,
+                newCounters[0] - counters[0],
+                newCounters[1] - counters[1],
+                (newCounters[2] - counters[2]) / 1_000_000,
+                null,
+            )
+            measurements += measurement
+            lastMeasurements[patch] = measurement
+        }
+    }
+
+    fun run() {
+        val temporaryFilesPath = File("build/tmp/patch-benchmark").apply { deleteRecursively() }
+
+        var start = System.nanoTime()
+        Patcher(PatcherConfig(apkFile, temporaryFilesPath)).use { patcher ->
+            val packageMetadata = patcher.context.packageMetadata
+            val patches = bundle.filter { patch ->
+                if (patchNames != null) return@filter patch.name in patchNames
+
+                patch.use && patch.compatiblePackages?.any { (packageName, versions) ->
+                    packageName == packageMetadata.packageName &&
+                            (versions == null || packageMetadata.packageVersion in versions)
+                } != false
+            }.toSet()
+
+            val measuredPatches = HashSet<Patch<*>>()
+            patches.forEach { it.measureBlocks(measuredPatches) }
+
+            patcher += patches
+            val loadMillis = (System.nanoTime() - start) / 1_000_000
+
+            start = System.nanoTime()
+            runBlocking {
+                patcher().collect { result ->
+                    val error = result.exception?.toString() ?: return@collect
+                    val patch = result.patch
+
+                    val measurement = lastMeasurements[patch]
+                    if (measurement != null) {
+                        measurement.error = error
+                    } else {
+                        // The patch did not run, because a dependency failed.
+                        measurements += Measurement(
+                            patch.name ?: patch.toString(), patch.type(), "execute", 0, 0, 0, 0, 0, error,
+                        )
+                    }
+                }
+            }
+            val end = System.nanoTime()
+            val patchMillis = ((if (finalizeStart != 0L) finalizeStart else end) - start) / 1_000_000
+            val finalizeMillis = if (finalizeStart != 0L) (end - finalizeStart) / 1_000_000 else 0
+
+            start = System.nanoTime()
+            patcher.get()
+            val writeMillis = (System.nanoTime() - start) / 1_000_000
+
+            writeReport(
+                Report(
+                    apkFile.name,
+                    packageMetadata.packageName,
+                    packageMetadata.packageVersion,
+                    loadMillis,
+                    patchMillis,
+                    finalizeMillis,
+                    writeMillis,
+                    measurements.sortedByDescending(Measurement::millis),
+                )
+            )
+        }
+
+        temporaryFilesPath.deleteRecursively()
+    }
+
+    private fun writeReport(report: Report) {
+        val reportDirectory = File("build/reports/patch-benchmark").apply { mkdirs() }
+
+        reportDirectory.resolve("report.json").writeText(
+            GsonBuilder().serializeNulls().setPrettyPrinting().create().toJson(report)
+        )
+
+        val markdown = StringBuilder()
+        markdown.appendLine("# Patch benchmark of ${report.packageName} ${report.packageVersion}")
+        markdown.appendLine()
+        markdown.appendLine("| Phase | Time (ms) |")
+        markdown.appendLine("|:------|----------:|")
+        markdown.appendLine("| Load | ${report.loadMillis} |")
+        markdown.appendLine("| Patch | ${report.patchMillis} |")
+        markdown.appendLine("| Finalize | ${report.finalizeMillis} |")
+        markdown.appendLine("| Write | ${report.writeMillis} |")
+        markdown.appendLine()
+        markdown.appendLine("| Patch | Type | Block | Time (ms) | Allocated, collector thread only (KiB) | Fingerprint searches | Cache hits | Fingerprint time (ms) | Error |")
+        markdown.appendLine("|:------|:-----|:------|----------:|---------------------------------------:|---------------------:|-----------:|----------------------:|:------|")
+        report.patches.forEach {
+            markdown.appendLine(
+                "| ${it.name} | ${it.type} | ${it.block} | ${it.millis} | ${it.collectorThreadAllocatedBytes / 1024} | " +
+                        "${it.fingerprintSearches} | ${it.fingerprintCacheHits} | ${it.fingerprintMillis} | ${it.error ?: ""} |"
+            )
+        }
+        reportDirectory.resolve("report.md").writeText(markdown.toString())
+
+        println("Wrote the patch benchmark report to: ${reportDirectory.absolutePath}")
+    }
+}
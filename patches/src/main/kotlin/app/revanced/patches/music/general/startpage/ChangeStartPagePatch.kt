@@ -15,6 +15,7 @@ import app.revanced.patches.music.utils.settings.ResourceUtils.updatePatchStatus
 import app.revanced.patches.music.utils.settings.addPreferenceWithIntent
 import app.revanced.patches.music.utils.settings.settingsPatch
 import app.revanced.util.addEntryValues
+import app.revanced.util.documentSession
 import app.revanced.util.fingerprint.methodOrThrow
 import app.revanced.util.getReference
 import app.revanced.util.indexOfFirstInstructionReversedOrThrow
@@ -35,21 +36,23 @@ private val changeStartPageResourcePatch = resourcePatch(
     )
 
     execute {
-        fun appendStartPage(startPage: String) {
-            addEntryValues(
-                "revanced_change_start_page_entries",
-                "@string/revanced_change_start_page_entry_$startPage",
-            )
-            addEntryValues(
-                "revanced_change_start_page_entry_values",
-                startPage.uppercase(),
-            )
-        }
+        documentSession {
+            fun appendStartPage(startPage: String) {
+                addEntryValues(
+                    "revanced_change_start_page_entries",
+                    "@string/revanced_change_start_page_entry_$startPage",
+                )
+                addEntryValues(
+                    "revanced_change_start_page_entry_values",
+                    startPage.uppercase(),
+                )
+            }
 
-        if (is_6_27_or_greater) {
-            appendStartPage("search")
+            if (is_6_27_or_greater) {
+                appendStartPage("search")
+            }
+            appendStartPage("subscriptions")
         }
-        appendStartPage("subscriptions")
     }
 }
 
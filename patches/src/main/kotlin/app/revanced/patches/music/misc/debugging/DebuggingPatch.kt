@@ -5,6 +5,7 @@ import app.revanced.patches.music.utils.compatibility.Constants.COMPATIBLE_PACKA
 import app.revanced.patches.music.utils.patch.PatchList.ENABLE_DEBUG_LOGGING
 import app.revanced.patches.music.utils.settings.CategoryType
 import app.revanced.patches.music.utils.settings.ResourceUtils.updatePatchStatus
+import app.revanced.patches.music.utils.settings.addPreferenceWithIntent
 import app.revanced.patches.music.utils.settings.addSwitchPreference
 import app.revanced.patches.music.utils.settings.settingsPatch
 
@@ -29,6 +30,10 @@ val debuggingPatch = resourcePatch(
             "false",
             "revanced_enable_debug_logging"
         )
+        addPreferenceWithIntent(
+            CategoryType.MISC,
+            "revanced_startup_trace"
+        )
 
         updatePatchStatus(ENABLE_DEBUG_LOGGING)
 
@@ -22,6 +22,9 @@ import app.revanced.patches.music.utils.settings.settingsPatch
 import app.revanced.patches.music.video.information.videoIdHook
 import app.revanced.patches.music.video.information.videoInformationPatch
 import app.revanced.patches.music.video.information.videoTimeHook
+import app.revanced.patches.music.video.playerresponse.Hook
+import app.revanced.patches.music.video.playerresponse.addPlayerResponseMethodHook
+import app.revanced.patches.music.video.playerresponse.playerResponseMethodHookPatch
 import app.revanced.util.adoptChild
 import app.revanced.util.fingerprint.matchOrThrow
 import app.revanced.util.fingerprint.methodOrThrow
@@ -44,7 +47,8 @@ private val sponsorBlockBytecodePatch = bytecodePatch(
 ) {
     dependsOn(
         sharedResourceIdPatch,
-        videoInformationPatch
+        videoInformationPatch,
+        playerResponseMethodHookPatch,
     )
 
     execute {
@@ -148,6 +152,15 @@ private val sponsorBlockBytecodePatch = bytecodePatch(
          * Set current video id
          */
         videoIdHook("$EXTENSION_CLASS_DESCRIPTOR->setVideoId(Ljava/lang/String;)V")
+
+        /**
+         * Prefetch segments of videos loaded before they are opened
+         */
+        addPlayerResponseMethodHook(
+            Hook.VideoId(
+                "$EXTENSION_CLASS_DESCRIPTOR->preloadVideoId(Ljava/lang/String;)V"
+            )
+        )
     }
 }
 
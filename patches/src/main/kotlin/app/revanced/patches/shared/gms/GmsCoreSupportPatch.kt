@@ -25,6 +25,8 @@ import app.revanced.patches.shared.gms.Constants.AUTHORITIES_LEGACY
 import app.revanced.patches.shared.gms.Constants.PERMISSIONS
 import app.revanced.patches.shared.gms.Constants.PERMISSIONS_LEGACY
 import app.revanced.util.Utils.trimIndentMultiline
+import app.revanced.util.bytecodeIndex
+import app.revanced.util.findMutableMethodOf
 import app.revanced.util.fingerprint.methodOrNull
 import app.revanced.util.fingerprint.methodOrThrow
 import app.revanced.util.fingerprint.mutableClassOrThrow
@@ -166,41 +168,38 @@ fun gmsCoreSupportPatch(
         else
             AUTHORITIES_LEGACY
 
-        fun transformStringReferences(transform: (str: String) -> String?) = classes.forEach {
-            val mutableClass by lazy {
-                proxy(it).mutableClass
-            }
+        fun transformStringReferences(transform: (str: String) -> String?) {
+            // Transform each distinct string once, and only visit the methods that reference it.
+            val transformedStrings = bytecodeIndex.allStrings.mapNotNull { string ->
+                transform(string)?.let { transformedString -> string to transformedString }
+            }.toMap()
+
+            transformedStrings.keys
+                .flatMap { string -> bytecodeIndex.methodsWithString(string) }
+                .distinct()
+                .forEach { (classDef, method) ->
+                    val mutableMethod by lazy {
+                        proxy(classDef).mutableClass.findMutableMethodOf(method)
+                    }
 
-            it.methods.forEach classLoop@{ method ->
-                val implementation = method.implementation ?: return@classLoop
+                    method.implementation!!.instructions.forEachIndexed insnLoop@{ index, instruction ->
+                        val string =
+                            ((instruction as? Instruction21c)?.reference as? StringReference)?.string
+                                ?: return@insnLoop
 
-                val mutableMethod by lazy {
-                    mutableClass.methods.first { target ->
-                        MethodUtil.methodSignaturesMatch(
-                            target,
-                            method
+                        // Apply transformation.
+                        val transformedString = transformedStrings[string] ?: return@insnLoop
+
+                        mutableMethod.replaceInstruction(
+                            index,
+                            BuilderInstruction21c(
+                                Opcode.CONST_STRING,
+                                instruction.registerA,
+                                ImmutableStringReference(transformedString),
+                            ),
                         )
                     }
                 }
-
-                implementation.instructions.forEachIndexed insnLoop@{ index, instruction ->
-                    val string =
-                        ((instruction as? Instruction21c)?.reference as? StringReference)?.string
-                            ?: return@insnLoop
-
-                    // Apply transformation.
-                    val transformedString = transform(string) ?: return@insnLoop
-
-                    mutableMethod.replaceInstruction(
-                        index,
-                        BuilderInstruction21c(
-                            Opcode.CONST_STRING,
-                            instruction.registerA,
-                            ImmutableStringReference(transformedString),
-                        ),
-                    )
-                }
-            }
         }
 
         // region Collection of transformations that are applied to all strings.
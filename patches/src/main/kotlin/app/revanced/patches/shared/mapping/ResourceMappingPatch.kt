@@ -1,48 +1,128 @@
 package app.revanced.patches.shared.mapping
 
 import app.revanced.patcher.patch.resourcePatch
-import org.w3c.dom.Element
+import org.xml.sax.Attributes
+import org.xml.sax.helpers.DefaultHandler
+import javax.xml.parsers.SAXParserFactory
 
-data class ResourceElement(val type: String, val name: String, val id: Long)
+/**
+ * Resource ids of one resource type, in an open addressed table keyed by the resource name.
+ *
+ * Names are interned when added. Names used by patches are string literals,
+ * which are interned as well, so most lookups compare by reference.
+ */
+private class ResourceTable {
+    private var names = arrayOfNulls<String>(INITIAL_CAPACITY)
+    private var ids = LongArray(INITIAL_CAPACITY)
+    private var size = 0
+
+    operator fun get(name: String): Long {
+        val mask = names.size - 1
+        var index = indexOf(name, mask)
+        while (true) {
+            val key = names[index] ?: return -1L
+            if (key === name || key == name) return ids[index]
+            index = (index + 1) and mask
+        }
+    }
+
+    operator fun set(name: String, id: Long) {
+        // Keep the table at most half full.
+        if ((size + 1) * 2 > names.size) resize(names.size * 2)
+        if (insert(names, ids, name.intern(), id)) size++
+    }
+
+    private fun resize(capacity: Int) {
+        val newNames = arrayOfNulls<String>(capacity)
+        val newIds = LongArray(capacity)
+        for (i in names.indices) {
+            val name = names[i] ?: continue
+            insert(newNames, newIds, name, ids[i])
+        }
+        names = newNames
+        ids = newIds
+    }
+
+    private companion object {
+        const val INITIAL_CAPACITY = 256
 
-private lateinit var resourceMappings: MutableMap<String, ResourceElement>
+        fun indexOf(name: String, mask: Int): Int {
+            val hash = name.hashCode()
+            // Spread the high bits, as names of the same type often share long prefixes.
+            return (hash xor (hash ushr 16)) and mask
+        }
 
-private fun setResourceId(type: String, name: String, id: Long) {
-    resourceMappings[type + name] = ResourceElement(type, name, id)
+        /**
+         * @return True if the name was not in the table.
+         */
+        fun insert(names: Array<String?>, ids: LongArray, name: String, id: Long): Boolean {
+            val mask = names.size - 1
+            var index = indexOf(name, mask)
+            while (true) {
+                val key = names[index]
+                if (key == null) {
+                    names[index] = name
+                    ids[index] = id
+                    return true
+                }
+                if (key == name) {
+                    ids[index] = id
+                    return false
+                }
+                index = (index + 1) and mask
+            }
+        }
+    }
 }
 
+/**
+ * Key: resource type.
+ */
+private lateinit var resourceMappings: Map<String, ResourceTable>
+
+/**
+ * Tables of [resourceMappings], indexed by [ResourceType.ordinal].
+ */
+private lateinit var resourceTypeMappings: Array<ResourceTable?>
+
 fun getResourceId(resourceType: ResourceType, name: String) =
-    getResourceId(resourceType.value, name)
+    resourceTypeMappings[resourceType.ordinal]?.get(name) ?: -1L
 
 /**
- * @return A resource id of the given resource type and name.
- * @throws PatchException if the resource is not found.
+ * @return A resource id of the given resource type and name, or -1 if the resource is not found.
  */
-fun getResourceId(type: String, name: String) = resourceMappings[type + name]?.id
-    ?: -1L
+fun getResourceId(type: String, name: String) =
+    resourceMappings[type]?.get(name) ?: -1L
 
 val resourceMappingPatch = resourcePatch(
     description = "resourceMappingPatch"
 ) {
     execute {
-        document("res/values/public.xml").use { document ->
-            val resources = document.documentElement.childNodes
-            val resourcesLength = resources.length
-            resourceMappings = HashMap<String, ResourceElement>(2 * resourcesLength)
+        val mappings = HashMap<String, ResourceTable>()
 
-            for (i in 0 until resourcesLength) {
-                val node = resources.item(i) as? Element ?: continue
-                if (node.nodeName != "public") continue
+        // public.xml has an entry for every resource of the app.
+        // Read it as a stream, instead of keeping all entries in a document.
+        // SAX is used as StAX is not available on Android.
+        val handler = object : DefaultHandler() {
+            override fun startElement(uri: String?, localName: String?, qName: String, attributes: Attributes) {
+                if (qName != "public") return
 
-                val nameAttribute = node.getAttribute("name")
-                if (nameAttribute.startsWith("APKTOOL")) continue
+                val nameAttribute = attributes.getValue("name") ?: return
+                if (nameAttribute.startsWith("APKTOOL")) return
 
-                val typeAttribute = node.getAttribute("type")
-                val id = node.getAttribute("id").substring(2).toLong(16)
+                val typeAttribute = attributes.getValue("type") ?: return
+                val idAttribute = attributes.getValue("id") ?: return
+                val id = idAttribute.substring(2).toLong(16)
 
-                setResourceId(typeAttribute, nameAttribute, id)
+                mappings.getOrPut(typeAttribute) { ResourceTable() }[nameAttribute] = id
             }
         }
+        get("res/values/public.xml").inputStream().buffered().use { inputStream ->
+            SAXParserFactory.newInstance().newSAXParser().parse(inputStream, handler)
+        }
+
+        resourceMappings = mappings
+        resourceTypeMappings = ResourceType.values().map { mappings[it.value] }.toTypedArray()
     }
 }
 
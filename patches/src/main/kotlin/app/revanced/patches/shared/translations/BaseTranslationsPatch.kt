@@ -2,16 +2,23 @@ package app.revanced.patches.shared.translations
 
 import app.revanced.patcher.patch.PatchException
 import app.revanced.patcher.patch.ResourcePatchContext
-import app.revanced.util.FilesCompat
+import app.revanced.util.BundledResources
 import app.revanced.util.doRecursively
-import app.revanced.util.inputStreamFromBundledResource
+import app.revanced.util.documentSession
 import org.w3c.dom.Element
 import org.w3c.dom.Node
+import org.xml.sax.Attributes
+import org.xml.sax.ContentHandler
+import org.xml.sax.InputSource
+import org.xml.sax.ext.LexicalHandler
+import org.xml.sax.helpers.AttributesImpl
+import org.xml.sax.helpers.DefaultHandler
+import org.xml.sax.helpers.XMLFilterImpl
+import java.io.ByteArrayOutputStream
 import java.io.File
-import javax.xml.parsers.DocumentBuilderFactory
-import javax.xml.transform.OutputKeys
+import javax.xml.parsers.SAXParserFactory
 import javax.xml.transform.TransformerFactory
-import javax.xml.transform.dom.DOMSource
+import javax.xml.transform.sax.SAXSource
 import javax.xml.transform.stream.StreamResult
 
 // Array of all possible app languages.
@@ -95,69 +102,72 @@ fun ResourcePatchContext.baseTranslationsPatch(
             language.replace("-r", "-").replace("b+", "").replace("+", "-")
         }.toHashSet().toTypedArray()
 
-    // Remove unselected app languages from UI
-    document("res/xml/locales_config.xml").use { document ->
-        val nodesToRemove = mutableListOf<Node>()
+    // Both files are written when the session is closed.
+    documentSession {
+        // Remove unselected app languages from UI
+        document("res/xml/locales_config.xml").let { document ->
+            val nodesToRemove = mutableListOf<Node>()
 
-        document.doRecursively { node ->
-            if (node is Element && node.tagName == "locale") {
-                node.getAttributeNode("android:name")?.let { attribute ->
-                    if (attribute.textContent !in filteredAppLanguages) {
-                        nodesToRemove.add(node)
+            document.doRecursively { node ->
+                if (node is Element && node.tagName == "locale") {
+                    node.getAttributeNode("android:name")?.let { attribute ->
+                        if (attribute.textContent !in filteredAppLanguages) {
+                            nodesToRemove.add(node)
+                        }
                     }
                 }
             }
-        }
 
-        // Remove the collected nodes (avoids NullPointerException)
-        for (node in nodesToRemove) {
-            node.parentNode?.removeChild(node)
+            // Remove the collected nodes (avoids NullPointerException)
+            for (node in nodesToRemove) {
+                node.parentNode?.removeChild(node)
+            }
         }
-    }
 
-    if (!isYouTube) return
+        if (!isYouTube) return@documentSession
 
-    filteredAppLanguages = filteredAppLanguages.map { language ->
-        val hyphenIndex = language.indexOf("-") - 1
-        if (hyphenIndex > 2) {
-            language.subSequence(0, hyphenIndex).toString().uppercase()
-        } else {
-            language.uppercase()
-        }
-    }.toHashSet().toTypedArray()
+        filteredAppLanguages = filteredAppLanguages.map { language ->
+            val hyphenIndex = language.indexOf("-") - 1
+            if (hyphenIndex > 2) {
+                language.subSequence(0, hyphenIndex).toString().uppercase()
+            } else {
+                language.uppercase()
+            }
+        }.toHashSet().toTypedArray()
 
-    // Remove unselected app languages from RVX Settings
-    document("res/values/arrays.xml").use { document ->
-        val targetAttributeNames = setOf(
-            "revanced_language_entries",
-            "revanced_language_entry_values",
-        )
-        val nodesToRemove = mutableListOf<Node>()
-
-        val resourcesNode = document.documentElement
-        val childNodes = resourcesNode.childNodes
-        for (i in 0 until childNodes.length) {
-            val node = childNodes.item(i) as? Element ?: continue
-
-            if (node.getAttribute("name") in targetAttributeNames) {
-                val itemNodes = node.childNodes
-                for (j in 0 until itemNodes.length) {
-                    val item = itemNodes.item(j) as? Element ?: continue
-                    val text = item.textContent
-                    val length = text.length
-                    if (!text.endsWith("DEFAULT") &&
-                        length >= 2 &&
-                        text.subSequence(length - 2, length) !in filteredAppLanguages
-                    ) {
-                        nodesToRemove.add(item)
+        // Remove unselected app languages from RVX Settings
+        document("res/values/arrays.xml").let { document ->
+            val targetAttributeNames = setOf(
+                "revanced_language_entries",
+                "revanced_language_entry_values",
+            )
+            val nodesToRemove = mutableListOf<Node>()
+
+            val resourcesNode = document.documentElement
+            val childNodes = resourcesNode.childNodes
+            for (i in 0 until childNodes.length) {
+                val node = childNodes.item(i) as? Element ?: continue
+
+                if (node.getAttribute("name") in targetAttributeNames) {
+                    val itemNodes = node.childNodes
+                    for (j in 0 until itemNodes.length) {
+                        val item = itemNodes.item(j) as? Element ?: continue
+                        val text = item.textContent
+                        val length = text.length
+                        if (!text.endsWith("DEFAULT") &&
+                            length >= 2 &&
+                            text.subSequence(length - 2, length) !in filteredAppLanguages
+                        ) {
+                            nodesToRemove.add(item)
+                        }
                     }
                 }
             }
-        }
 
-        // Remove the collected nodes (avoids NullPointerException)
-        for (n in nodesToRemove) {
-            n.parentNode?.removeChild(n)
+            // Remove the collected nodes (avoids NullPointerException)
+            for (n in nodesToRemove) {
+                n.parentNode?.removeChild(n)
+            }
         }
     }
 }
@@ -173,73 +183,257 @@ private fun ResourcePatchContext.copyStringsXml(
     languageArray: Array<String>
 ) {
     val resourceDirectory = get("res")
-    languageArray.forEach { language ->
-        inputStreamFromBundledResource(
-            "$sourceDirectory/translations",
-            "$language/strings.xml"
-        )?.let { inputStream ->
-            val directory = "values-$language-v21"
-            val valuesV21Directory = resourceDirectory.resolve(directory)
-            if (!valuesV21Directory.isDirectory) valuesV21Directory.mkdirs()
-
-            FilesCompat.copy(
-                inputStream,
-                resourceDirectory.resolve("$directory/strings.xml")
-            )
+    BundledResources.copy(
+        languageArray.associate { language ->
+            resourceDirectory.resolve("values-$language-v21/strings.xml") to
+                    "$sourceDirectory/translations/$language/strings.xml"
         }
-    }
+    )
 }
 
 /**
  * Updates the contents of the destination strings.xml file by merging it with the source strings.xml file.
  *
- * This function reads both source and destination XML files, compares each <string> element by their
- * unique "name" attribute, and if a match is found, it replaces the content in the destination file with
- * the content from the source file.
+ * The <string> elements of the source file are read by their unique "name" attribute.
+ * The destination file is then streamed, and the content of each <string> element with a name
+ * of the source file is replaced with the content from the source file.
+ * Other parts of the destination file are written as they are read, without building a document.
+ *
+ * Namespaces of prefixed elements in the source strings, such as `xliff:g`,
+ * are declared on the root element of the destination file if it does not declare them.
+ *
+ * StAX is not available on Android, so both files are streamed with SAX.
  *
  * @param sourceFile The source strings.xml file containing new string values.
  * @param destinationFile The destination strings.xml file to be updated with values from the source file.
  */
 private fun updateStringsXml(sourceFile: File, destinationFile: File) {
-    val documentBuilderFactory = DocumentBuilderFactory.newInstance()
-    val documentBuilder = documentBuilderFactory.newDocumentBuilder()
+    // Without namespace processing, prefixed names and namespace declarations are passed on as written.
+    val parserFactory = SAXParserFactory.newInstance()
+
+    val source = SourceStringsHandler()
+    sourceFile.inputStream().buffered().use { inputStream ->
+        parserFactory.newSAXParser().parse(inputStream, source)
+    }
+
+    if (source.strings.isEmpty()) return
+
+    val filter = UpdateStringsFilter(source.strings, source.usedNamespaces())
+    val output = ByteArrayOutputStream(destinationFile.length().toInt())
+    destinationFile.inputStream().buffered().use { inputStream ->
+        filter.parent = parserFactory.newSAXParser().xmlReader
+        TransformerFactory.newInstance().newTransformer().transform(
+            SAXSource(filter, InputSource(inputStream)),
+            StreamResult(output),
+        )
+    }
+
+    destinationFile.writeBytes(output.toByteArray())
+}
 
-    // Parse the source and destination XML files into Document objects
-    val sourceDoc = documentBuilder.parse(sourceFile)
-    val destinationDoc = documentBuilder.parse(destinationFile)
+/**
+ * Events of the content of a <string> element, sent to a [ContentHandler] in the order they were read.
+ */
+private typealias StringContent = List<ContentHandler.() -> Unit>
 
-    val sourceStrings = sourceDoc.getElementsByTagName("string")
-    val destinationStrings = destinationDoc.getElementsByTagName("string")
+private fun String.prefixOrNull() = indexOf(':').takeIf { it > 0 }?.let { substring(0, it) }
+
+/**
+ * Reads the content of each <string> element of a strings.xml file.
+ */
+private class SourceStringsHandler : DefaultHandler() {
+    /**
+     * Key: "name" attribute, Value: content of the <string> element.
+     */
+    val strings = HashMap<String, StringContent>()
+
+    /**
+     * Key: namespace prefix, Value: namespace URI.
+     * Namespaces declared on the root element.
+     */
+    private val namespaces = HashMap<String, String>()
+
+    /**
+     * Prefixes of the elements and attributes in the content of the <string> elements.
+     */
+    private val usedPrefixes = HashSet<String>()
 
-    // Create a map to store the <string> elements from the source document by their "name" attribute
-    val sourceMap = mutableMapOf<String, Node>()
+    private var isRoot = true
+    private var name: String? = null
+    private var content: MutableList<ContentHandler.() -> Unit>? = null
 
-    // Populate the map with nodes from the source document
-    for (i in 0 until sourceStrings.length) {
-        val node = sourceStrings.item(i)
-        val name = node.attributes.getNamedItem("name").nodeValue
-        sourceMap[name] = node
+    /**
+     * Depth in the content of the current <string> element.
+     */
+    private var contentDepth = 0
+
+    /**
+     * @return Key: namespace prefix, Value: namespace URI.
+     * Namespaces declared on the root element that are used in the content of the <string> elements.
+     */
+    fun usedNamespaces(): Map<String, String> =
+        namespaces.filterKeys { it in usedPrefixes }
+
+    override fun startElement(uri: String?, localName: String?, qName: String, attributes: Attributes) {
+        if (isRoot) {
+            isRoot = false
+            for (i in 0 until attributes.length) {
+                val attributeName = attributes.getQName(i)
+                if (attributeName.startsWith("xmlns:")) {
+                    namespaces[attributeName.substring("xmlns:".length)] = attributes.getValue(i)
+                }
+            }
+            return
+        }
+
+        val content = content
+        if (content == null) {
+            if (qName == "string") {
+                name = attributes.getValue("name") ?: return
+                this.content = mutableListOf()
+                contentDepth = 0
+            }
+            return
+        }
+
+        contentDepth++
+        qName.prefixOrNull()?.let(usedPrefixes::add)
+        for (i in 0 until attributes.length) {
+            attributes.getQName(i).prefixOrNull()?.let(usedPrefixes::add)
+        }
+        // The parser reuses the attributes, so keep a copy.
+        val attributesCopy = AttributesImpl(attributes)
+        content.add { startElement("", "", qName, attributesCopy) }
     }
 
-    // Update the destination document with values from the source document
-    for (i in 0 until destinationStrings.length) {
-        val node = destinationStrings.item(i)
-        val name = node.attributes.getNamedItem("name").nodeValue
-        if (sourceMap.containsKey(name)) {
-            node.textContent = sourceMap[name]?.textContent
+    override fun endElement(uri: String?, localName: String?, qName: String) {
+        val content = content ?: return
+        if (contentDepth == 0) {
+            strings[name!!] = content
+            this.content = null
+            return
         }
+
+        contentDepth--
+        content.add { endElement("", "", qName) }
     }
 
+    override fun characters(ch: CharArray, start: Int, length: Int) {
+        val content = content ?: return
+        val text = String(ch, start, length)
+        content.add { characters(text.toCharArray(), 0, text.length) }
+    }
+}
+
+/**
+ * Passes on all SAX events of a strings.xml file,
+ * except the content of the <string> elements that are replaced.
+ *
+ * @param strings Key: "name" attribute, Value: the new content of the <string> element.
+ * @param namespaces Key: namespace prefix, Value: namespace URI.
+ * Namespaces to declare on the root element, if it does not declare them.
+ */
+private class UpdateStringsFilter(
+    private val strings: Map<String, StringContent>,
+    private val namespaces: Map<String, String>,
+) : XMLFilterImpl(), LexicalHandler {
+    private var isRoot = true
+
     /**
-     * Prepare the transformer for writing the updated document back to the file.
-     * The transformer is configured to indent the output XML for better readability.
+     * Depth of the <string> element being replaced, or 0 if no element is being replaced.
      */
-    val transformerFactory = TransformerFactory.newInstance()
-    val transformer = transformerFactory.newTransformer()
-    transformer.setOutputProperty(OutputKeys.INDENT, "yes")
-    transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2")
-
-    val domSource = DOMSource(destinationDoc)
-    val streamResult = StreamResult(destinationFile)
-    transformer.transform(domSource, streamResult)
+    private var replacedDepth = 0
+
+    private var lexicalHandler: LexicalHandler? = null
+
+    // The transformer sets its lexical handler on this filter, and XMLFilterImpl passes it on to the parser.
+    // Receive the lexical events here instead, so comments and CDATA sections of replaced content are not written.
+    override fun setProperty(name: String, value: Any?) {
+        if (name == LEXICAL_HANDLER_PROPERTY) {
+            lexicalHandler = value as LexicalHandler?
+            super.setProperty(name, this)
+        } else {
+            super.setProperty(name, value)
+        }
+    }
+
+    override fun getProperty(name: String): Any? =
+        if (name == LEXICAL_HANDLER_PROPERTY) lexicalHandler else super.getProperty(name)
+
+    override fun startElement(uri: String?, localName: String?, qName: String, atts: Attributes) {
+        if (replacedDepth > 0) {
+            replacedDepth++
+            return
+        }
+
+        if (isRoot) {
+            isRoot = false
+            val rootAttributes = AttributesImpl(atts)
+            namespaces.forEach { (prefix, namespaceUri) ->
+                val attributeName = "xmlns:$prefix"
+                if (rootAttributes.getIndex(attributeName) < 0) {
+                    rootAttributes.addAttribute("", "", attributeName, "CDATA", namespaceUri)
+                }
+            }
+            super.startElement(uri, localName, qName, rootAttributes)
+            return
+        }
+
+        super.startElement(uri, localName, qName, atts)
+        if (qName != "string") return
+
+        val content = atts.getValue("name")?.let(strings::get) ?: return
+        // Write the new content, and skip the content of the destination until the end element.
+        content.forEach { event -> contentHandler.event() }
+        replacedDepth = 1
+    }
+
+    override fun endElement(uri: String?, localName: String?, qName: String) {
+        if (replacedDepth > 0 && --replacedDepth > 0) return
+        super.endElement(uri, localName, qName)
+    }
+
+    override fun characters(ch: CharArray, start: Int, length: Int) {
+        if (replacedDepth == 0) super.characters(ch, start, length)
+    }
+
+    override fun ignorableWhitespace(ch: CharArray, start: Int, length: Int) {
+        if (replacedDepth == 0) super.ignorableWhitespace(ch, start, length)
+    }
+
+    override fun processingInstruction(target: String?, data: String?) {
+        if (replacedDepth == 0) super.processingInstruction(target, data)
+    }
+
+    override fun comment(ch: CharArray, start: Int, length: Int) {
+        if (replacedDepth == 0) lexicalHandler?.comment(ch, start, length)
+    }
+
+    override fun startCDATA() {
+        if (replacedDepth == 0) lexicalHandler?.startCDATA()
+    }
+
+    override fun endCDATA() {
+        if (replacedDepth == 0) lexicalHandler?.endCDATA()
+    }
+
+    override fun startEntity(name: String?) {
+        if (replacedDepth == 0) lexicalHandler?.startEntity(name)
+    }
+
+    override fun endEntity(name: String?) {
+        if (replacedDepth == 0) lexicalHandler?.endEntity(name)
+    }
+
+    override fun startDTD(name: String?, publicId: String?, systemId: String?) {
+        lexicalHandler?.startDTD(name, publicId, systemId)
+    }
+
+    override fun endDTD() {
+        lexicalHandler?.endDTD()
+    }
+
+    private companion object {
+        const val LEXICAL_HANDLER_PROPERTY = "http://xml.org/sax/properties/lexical-handler"
+    }
 }
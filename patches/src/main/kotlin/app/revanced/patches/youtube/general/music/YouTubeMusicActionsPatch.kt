@@ -14,6 +14,7 @@ import app.revanced.patches.youtube.utils.settings.ResourceUtils.getContext
 import app.revanced.patches.youtube.utils.settings.ResourceUtils.youtubeMusicPackageName
 import app.revanced.patches.youtube.utils.settings.settingsPatch
 import app.revanced.util.addEntryValues
+import app.revanced.util.documentSession
 import app.revanced.util.findMethodOrThrow
 import app.revanced.util.fingerprint.matchOrThrow
 import app.revanced.util.getReference
@@ -83,7 +84,7 @@ val youtubeMusicActionsPatch = bytecodePatch(
 
     finalize {
         if (GMSCORE_SUPPORT.included == true) {
-            getContext().apply {
+            getContext().documentSession {
                 addEntryValues(
                     "revanced_third_party_youtube_music_label",
                     "RVX Music"
@@ -110,43 +110,46 @@ val spoofAppVersionPatch = resourcePatch(
             SPOOF_APP_VERSION
         )
 
-        // TODO: Remove this when the legacy code for YouTube 18.xx is cleaned up.
-        if (!is_19_01_or_greater) {
-            appendAppVersion("17.41.37")
-            appendAppVersion("18.05.40")
-            appendAppVersion("18.17.43")
-
-            if (is_18_34_or_greater) {
-                appendAppVersion("18.33.40")
-            } else {
-                return@execute
+        val appVersions = buildList {
+            // TODO: Remove this when the legacy code for YouTube 18.xx is cleaned up.
+            if (!is_19_01_or_greater) {
+                add("17.41.37")
+                add("18.05.40")
+                add("18.17.43")
+
+                if (is_18_34_or_greater) {
+                    add("18.33.40")
+                } else {
+                    return@buildList
+                }
+
+                if (is_18_39_or_greater) {
+                    add("18.38.45")
+                } else {
+                    return@buildList
+                }
+
+                if (is_18_49_or_greater) {
+                    add("18.48.39")
+                }
+
+                return@buildList
             }
 
-            if (is_18_39_or_greater) {
-                appendAppVersion("18.38.45")
+            add("19.01.34")
+
+            if (is_19_28_or_greater) {
+                add("19.26.42")
             } else {
-                return@execute
+                return@buildList
             }
 
-            if (is_18_49_or_greater) {
-                appendAppVersion("18.48.39")
+            if (is_19_34_or_greater) {
+                add("19.33.37")
             }
-
-            return@execute
-        }
-
-        appendAppVersion("19.01.34")
-
-        if (is_19_28_or_greater) {
-            appendAppVersion("19.26.42")
-        } else {
-            return@execute
         }
 
-        if (is_19_34_or_greater) {
-            appendAppVersion("19.33.37")
-        } else {
-            return@execute
-        }
+        // Arrays are edited in one document, instead of loading it again for each version.
+        appendAppVersion(*appVersions.toTypedArray())
     }
 }
@@ -10,6 +10,7 @@ import app.revanced.patches.youtube.utils.settings.settingsPatch
 import app.revanced.util.ResourceGroup
 import app.revanced.util.addEntryValues
 import app.revanced.util.copyResources
+import app.revanced.util.documentSession
 import app.revanced.util.valueOrThrow
 import java.nio.file.Files
 
@@ -61,17 +62,19 @@ val doubleTapLengthPatch = resourcePatch(
             )
         )
 
-        for (index in 0 until splits.count()) {
-            addEntryValues(
-                entryValueName,
-                lengthElements[index],
-                path = arrayPath
-            )
-            addEntryValues(
-                entriesName,
-                lengthElements[index],
-                path = arrayPath
-            )
+        documentSession {
+            for (index in 0 until splits.count()) {
+                addEntryValues(
+                    entryValueName,
+                    lengthElements[index],
+                    path = arrayPath
+                )
+                addEntryValues(
+                    entriesName,
+                    lengthElements[index],
+                    path = arrayPath
+                )
+            }
         }
 
         addPreference(CUSTOM_DOUBLE_TAP_LENGTH)
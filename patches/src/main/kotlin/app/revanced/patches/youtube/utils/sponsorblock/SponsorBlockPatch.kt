@@ -29,6 +29,7 @@ import app.revanced.patches.youtube.video.information.onCreateHook
 import app.revanced.patches.youtube.video.information.videoEndMethod
 import app.revanced.patches.youtube.video.information.videoInformationPatch
 import app.revanced.patches.youtube.video.information.videoTimeHook
+import app.revanced.patches.youtube.video.videoid.hookPlayerResponseVideoId
 import app.revanced.util.ResourceGroup
 import app.revanced.util.copyResources
 import app.revanced.util.fingerprint.matchOrThrow
@@ -189,6 +190,9 @@ val sponsorBlockBytecodePatch = bytecodePatch(
         // Set current video id
         hookVideoInformation("$EXTENSION_SEGMENT_PLAYBACK_CONTROLLER_CLASS_DESCRIPTOR->newVideoStarted(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;JZ)V")
 
+        // Prefetch segments of videos loaded before they are opened
+        hookPlayerResponseVideoId("$EXTENSION_SEGMENT_PLAYBACK_CONTROLLER_CLASS_DESCRIPTOR->preloadVideoId(Ljava/lang/String;Z)V")
+
         updatePatchStatus(PATCH_STATUS_CLASS_DESCRIPTOR, "SponsorBlock")
     }
 }
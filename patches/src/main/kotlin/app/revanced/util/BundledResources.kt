@@ -0,0 +1,103 @@
+package app.revanced.util
+
+import app.revanced.util.Utils.forEachParallel
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.net.JarURLConnection
+import java.nio.channels.Channels
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+
+/**
+ * Copies resources bundled with the patches.
+ *
+ * Resources are read from the patches file with a single [ZipFile] per call,
+ * instead of looking up every resource with the class loader.
+ * The file is closed when the resources are copied.
+ * Files are copied in parallel, and a file that already has the content of the resource
+ * is not written again. The CRC-32 of the resource is stored in the patches file,
+ * so only the existing file has to be read.
+ *
+ * If resources are not loaded from a JAR, they are copied from the class loader.
+ */
+internal object BundledResources {
+    private const val TRANSFER_SIZE = 64L * 1024
+
+    private val classLoader = object {}.javaClass.classLoader
+
+    /**
+     * @return The patches file the resource is loaded from, or null if it is not loaded from a JAR.
+     */
+    private fun patchesFileOf(resource: String): File? {
+        val connection = try {
+            classLoader.getResource(resource)?.openConnection() as? JarURLConnection
+        } catch (_: IOException) {
+            null
+        } ?: return null
+
+        return try {
+            File(connection.jarFileURL.toURI()).takeIf(File::isFile)
+        } catch (_: Exception) {
+            null
+        }
+    }
+
+    /**
+     * Copies the resources to the files. Resources that do not exist are skipped.
+     *
+     * @param resources Key: target file, Value: path of the bundled resource.
+     */
+    fun copy(resources: Map<File, String>) {
+        val patchesFile = resources.values.firstOrNull()?.let(::patchesFileOf)
+        if (patchesFile == null) {
+            resources.entries.forEachParallel { (target, resource) ->
+                classLoader.getResourceAsStream(resource)?.let { inputStream ->
+                    target.parentFile?.mkdirs()
+                    FilesCompat.copy(inputStream, target)
+                }
+            }
+            return
+        }
+
+        ZipFile(patchesFile).use { zipFile ->
+            resources.entries.forEachParallel { (target, resource) ->
+                val entry = zipFile.getEntry(resource) ?: return@forEachParallel
+                if (target.hasContentOf(entry)) return@forEachParallel
+
+                target.parentFile?.mkdirs()
+                zipFile.getInputStream(entry).use { inputStream -> inputStream.writeTo(target) }
+            }
+        }
+    }
+
+    private fun File.hasContentOf(entry: ZipEntry): Boolean {
+        if (!isFile || entry.crc == -1L || length() != entry.size) return false
+
+        val crc = CRC32()
+        val buffer = ByteArray(TRANSFER_SIZE.toInt())
+        inputStream().use { inputStream ->
+            while (true) {
+                val count = inputStream.read(buffer)
+                if (count < 0) break
+                crc.update(buffer, 0, count)
+            }
+        }
+        return crc.value == entry.crc
+    }
+
+    private fun InputStream.writeTo(target: File) {
+        Channels.newChannel(this).use { source ->
+            FileOutputStream(target).channel.use { channel ->
+                var position = 0L
+                while (true) {
+                    val count = channel.transferFrom(source, position, TRANSFER_SIZE)
+                    if (count <= 0) break
+                    position += count
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package app.revanced.util
+
+import app.revanced.patcher.patch.BytecodePatchContext
+import com.android.tools.smali.dexlib2.iface.ClassDef
+import com.android.tools.smali.dexlib2.iface.Method
+import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction
+import com.android.tools.smali.dexlib2.iface.instruction.WideLiteralInstruction
+import com.android.tools.smali.dexlib2.iface.reference.StringReference
+import java.util.WeakHashMap
+
+/**
+ * A method and the class that declares it.
+ */
+data class IndexedMethod(val classDef: ClassDef, val method: Method)
+
+/**
+ * Methods of all classes, indexed by the literal values and strings they use.
+ *
+ * Built in a single pass over all instructions the first time it is used in a patching session,
+ * and shared by all patches instead of each patch walking every instruction again.
+ *
+ * The index is of the classes as they were before patching.
+ * Instructions added by patches are not indexed, which is the same as
+ * iterating over [BytecodePatchContext.classes].
+ * Lookups only return methods that may contain a value.
+ * The instructions must still be found in the mutable method, as patches may have changed it.
+ */
+class BytecodeIndex private constructor(private val classCount: Int) {
+    private val literals = HashMap<Long, MutableList<IndexedMethod>>()
+    private val strings = HashMap<String, MutableList<IndexedMethod>>()
+
+    /**
+     * Methods with a literal instruction of the value.
+     */
+    fun methodsWithLiteral(literal: Long): List<IndexedMethod> =
+        literals[literal] ?: emptyList()
+
+    /**
+     * Methods that reference the string.
+     */
+    fun methodsWithString(string: String): List<IndexedMethod> =
+        strings[string] ?: emptyList()
+
+    /**
+     * All strings referenced by any method.
+     */
+    val allStrings: Set<String>
+        get() = strings.keys
+
+    private fun <K> MutableMap<K, MutableList<IndexedMethod>>.addMethod(key: K, indexedMethod: IndexedMethod) {
+        val methods = getOrPut(key) { ArrayList(2) }
+        // Instructions of a method are indexed together, so a method already added is always last.
+        if (methods.lastOrNull() !== indexedMethod) methods.add(indexedMethod)
+    }
+
+    private fun index(classes: Iterable<ClassDef>) {
+        classes.forEach { classDef ->
+            classDef.methods.forEach { method ->
+                val instructions = method.implementation?.instructions ?: return@forEach
+                val indexedMethod = IndexedMethod(classDef, method)
+
+                instructions.forEach { instruction ->
+                    if (instruction is WideLiteralInstruction) {
+                        literals.addMethod(instruction.wideLiteral, indexedMethod)
+                    } else if (instruction is ReferenceInstruction) {
+                        val reference = instruction.reference
+                        if (reference is StringReference) strings.addMethod(reference.string, indexedMethod)
+                    }
+                }
+            }
+        }
+    }
+
+    internal companion object {
+        private val indexes = WeakHashMap<BytecodePatchContext, BytecodeIndex>()
+
+        /**
+         * @return The index of the context, built again if classes were added since it was built.
+         */
+        fun of(context: BytecodePatchContext): BytecodeIndex = synchronized(indexes) {
+            val classCount = context.classes.size
+            indexes[context]?.takeIf { it.classCount == classCount }
+                ?: BytecodeIndex(classCount).also { index ->
+                    index.index(context.classes)
+                    indexes[context] = index
+                }
+        }
+    }
+}
+
+/**
+ * The [BytecodeIndex] of this patching session.
+ */
+val BytecodePatchContext.bytecodeIndex: BytecodeIndex
+    get() = BytecodeIndex.of(this)
@@ -33,7 +33,6 @@ import com.android.tools.smali.dexlib2.iface.instruction.RegisterRangeInstructio
 import com.android.tools.smali.dexlib2.iface.instruction.ThreeRegisterInstruction
 import com.android.tools.smali.dexlib2.iface.instruction.TwoRegisterInstruction
 import com.android.tools.smali.dexlib2.iface.instruction.WideLiteralInstruction
-import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction31i
 import com.android.tools.smali.dexlib2.iface.reference.MethodReference
 import com.android.tools.smali.dexlib2.iface.reference.Reference
 import com.android.tools.smali.dexlib2.iface.reference.StringReference
@@ -382,31 +381,33 @@ fun MutableMethod.injectLiteralInstructionViewCall(
     )
 }
 
+/**
+ * Indices of all `const` instructions with the given literal value.
+ */
+private fun Method.indicesOfConstLiteral(literal: Long): List<Int> {
+    val instructions = implementation?.instructions ?: return emptyList()
+    return instructions.withIndex().filter { (_, instruction) ->
+        instruction.opcode == Opcode.CONST &&
+                (instruction as WideLiteralInstruction).wideLiteral == literal
+    }.map { (index, _) -> index }
+}
+
 fun BytecodePatchContext.replaceLiteralInstructionCall(
     originalLiteral: Long,
     replaceLiteral: Long
 ) {
-    classes.forEach { classDef ->
-        classDef.methods.forEach { method ->
-            method.implementation.apply {
-                this?.instructions?.forEachIndexed { _, instruction ->
-                    if (instruction.opcode != Opcode.CONST)
-                        return@forEachIndexed
-                    if ((instruction as Instruction31i).wideLiteral != originalLiteral)
-                        return@forEachIndexed
-
-                    proxy(classDef)
-                        .mutableClass
-                        .findMutableMethodOf(method).apply {
-                            val index = indexOfFirstLiteralInstructionOrThrow(originalLiteral)
-                            val register =
-                                (instruction as OneRegisterInstruction).registerA
-
-                            replaceInstruction(index, "const v$register, $replaceLiteral")
-                        }
+    // The index only picks the candidate methods.
+    // Earlier patches may have changed the method, so the instructions are found in the mutable method.
+    bytecodeIndex.methodsWithLiteral(originalLiteral).forEach { (classDef, method) ->
+        proxy(classDef)
+            .mutableClass
+            .findMutableMethodOf(method).apply {
+                indicesOfConstLiteral(originalLiteral).forEach { index ->
+                    val register = getInstruction<OneRegisterInstruction>(index).registerA
+
+                    replaceInstruction(index, "const v$register, $replaceLiteral")
                 }
             }
-        }
     }
 }
 
@@ -414,30 +415,20 @@ fun BytecodePatchContext.replaceLiteralInstructionCall(
     literal: Long,
     smaliInstruction: String
 ) {
-    classes.forEach { classDef ->
-        classDef.methods.forEach { method ->
-            method.implementation.apply {
-                this?.instructions?.forEachIndexed { _, instruction ->
-                    if (instruction.opcode != Opcode.CONST)
-                        return@forEachIndexed
-                    if ((instruction as Instruction31i).wideLiteral != literal)
-                        return@forEachIndexed
-
-                    proxy(classDef)
-                        .mutableClass
-                        .findMutableMethodOf(method).apply {
-                            val index = indexOfFirstLiteralInstructionOrThrow(literal)
-                            val register =
-                                (instruction as OneRegisterInstruction).registerA.toString()
-
-                            addInstructions(
-                                index + 1,
-                                smaliInstruction.replace(REGISTER_TEMPLATE_REPLACEMENT, register)
-                            )
-                        }
+    bytecodeIndex.methodsWithLiteral(literal).forEach { (classDef, method) ->
+        proxy(classDef)
+            .mutableClass
+            .findMutableMethodOf(method).apply {
+                // Add from the last index, so the earlier indices do not move.
+                indicesOfConstLiteral(literal).asReversed().forEach { index ->
+                    val register = getInstruction<OneRegisterInstruction>(index).registerA.toString()
+
+                    addInstructions(
+                        index + 1,
+                        smaliInstruction.replace(REGISTER_TEMPLATE_REPLACEMENT, register)
+                    )
                 }
             }
-        }
     }
 }
 
@@ -660,16 +651,10 @@ fun BytecodePatchContext.forEachLiteralValueInstruction(
     literal: Long,
     block: MutableMethod.(literalInstructionIndex: Int) -> Unit,
 ) {
-    classes.forEach { classDef ->
-        classDef.methods.forEach { method ->
-            method.implementation?.instructions?.forEachIndexed { index, instruction ->
-                if (instruction.opcode == Opcode.CONST &&
-                    (instruction as WideLiteralInstruction).wideLiteral == literal
-                ) {
-                    val mutableMethod = proxy(classDef).mutableClass.findMutableMethodOf(method)
-                    block.invoke(mutableMethod, index)
-                }
-            }
+    bytecodeIndex.methodsWithLiteral(literal).forEach { (classDef, method) ->
+        val mutableMethod = proxy(classDef).mutableClass.findMutableMethodOf(method)
+        mutableMethod.indicesOfConstLiteral(literal).forEach { index ->
+            block.invoke(mutableMethod, index)
         }
     }
 }
@@ -0,0 +1,210 @@
+package app.revanced.util
+
+import app.revanced.patcher.patch.ResourcePatchContext
+import app.revanced.patcher.util.Document
+import org.w3c.dom.Element
+import org.w3c.dom.Node
+import org.xml.sax.Attributes
+import org.xml.sax.InputSource
+import org.xml.sax.ext.LexicalHandler
+import org.xml.sax.helpers.XMLFilterImpl
+import java.io.ByteArrayOutputStream
+import java.io.Closeable
+import javax.xml.parsers.SAXParserFactory
+import javax.xml.transform.TransformerFactory
+import javax.xml.transform.sax.SAXSource
+import javax.xml.transform.stream.StreamResult
+
+/**
+ * Resource XML files edited together.
+ *
+ * Each file is loaded at most once per session, all edits are applied to the same document,
+ * and every loaded file is written once when the session is closed.
+ *
+ * Elements of files that are not loaded as a document are removed while streaming the file,
+ * without building a document.
+ *
+ * @see documentSession
+ */
+class DocumentSession internal constructor(
+    private val context: ResourcePatchContext,
+) : Closeable {
+    /**
+     * Key: path of the resource file.
+     */
+    private val documents = LinkedHashMap<String, Document>()
+
+    /**
+     * @return The document of the resource file, loaded on first use in this session.
+     */
+    fun document(path: String): org.w3c.dom.Document =
+        documents.getOrPut(path) { context.document(path) }
+
+    /**
+     * Removes all elements with the tag name, and an attribute with one of the values.
+     *
+     * @param path The path of the resource file.
+     * @param tagName The tag name of the elements.
+     * @param attributeName The name of the attribute, including the namespace prefix if it has one.
+     * @param values The attribute values of the elements to remove.
+     */
+    fun removeElements(
+        path: String,
+        tagName: String,
+        attributeName: String,
+        values: Set<String>,
+    ) {
+        if (values.isEmpty()) return
+
+        val document = documents[path]
+        if (document != null) {
+            val nodesToRemove = mutableListOf<Node>()
+            document.doRecursively { node ->
+                if (node is Element && node.tagName == tagName &&
+                    node.getAttribute(attributeName) in values
+                ) {
+                    nodesToRemove.add(node)
+                }
+            }
+            nodesToRemove.forEach { it.parentNode?.removeChild(it) }
+            return
+        }
+
+        val file = context.get(path)
+        if (!file.isFile) return
+
+        val filter = RemoveElementsFilter(tagName, attributeName, values)
+        val output = ByteArrayOutputStream(file.length().toInt())
+
+        file.inputStream().buffered().use { inputStream ->
+            filter.parent = parserFactory.newSAXParser().xmlReader
+            transformerFactory.newTransformer().transform(
+                SAXSource(filter, InputSource(inputStream)),
+                StreamResult(output),
+            )
+        }
+
+        if (filter.removed) file.writeBytes(output.toByteArray())
+    }
+
+    /**
+     * Writes all documents loaded in this session.
+     */
+    override fun close() {
+        documents.values.forEach(Document::close)
+        documents.clear()
+    }
+
+    /**
+     * Passes on all SAX events, except the events of the elements to remove.
+     */
+    private class RemoveElementsFilter(
+        private val tagName: String,
+        private val attributeName: String,
+        private val values: Set<String>,
+    ) : XMLFilterImpl(), LexicalHandler {
+        /**
+         * Depth of the element being removed, or 0 if no element is being removed.
+         */
+        private var removedDepth = 0
+
+        private var lexicalHandler: LexicalHandler? = null
+
+        var removed = false
+            private set
+
+        // The transformer sets its lexical handler on this filter, and XMLFilterImpl passes it on to the parser.
+        // Receive the lexical events here instead, so comments and CDATA sections of removed elements are not written.
+        override fun setProperty(name: String, value: Any?) {
+            if (name == LEXICAL_HANDLER_PROPERTY) {
+                lexicalHandler = value as LexicalHandler?
+                super.setProperty(name, this)
+            } else {
+                super.setProperty(name, value)
+            }
+        }
+
+        override fun getProperty(name: String): Any? =
+            if (name == LEXICAL_HANDLER_PROPERTY) lexicalHandler else super.getProperty(name)
+
+        override fun startElement(uri: String?, localName: String?, qName: String, atts: Attributes) {
+            if (removedDepth > 0) {
+                removedDepth++
+                return
+            }
+            if (qName == tagName && atts.getValue(attributeName) in values) {
+                removedDepth = 1
+                removed = true
+                return
+            }
+            super.startElement(uri, localName, qName, atts)
+        }
+
+        override fun endElement(uri: String?, localName: String?, qName: String) {
+            if (removedDepth > 0) {
+                removedDepth--
+                return
+            }
+            super.endElement(uri, localName, qName)
+        }
+
+        override fun characters(ch: CharArray, start: Int, length: Int) {
+            if (removedDepth == 0) super.characters(ch, start, length)
+        }
+
+        override fun ignorableWhitespace(ch: CharArray, start: Int, length: Int) {
+            if (removedDepth == 0) super.ignorableWhitespace(ch, start, length)
+        }
+
+        override fun processingInstruction(target: String?, data: String?) {
+            if (removedDepth == 0) super.processingInstruction(target, data)
+        }
+
+        override fun comment(ch: CharArray, start: Int, length: Int) {
+            if (removedDepth == 0) lexicalHandler?.comment(ch, start, length)
+        }
+
+        override fun startCDATA() {
+            if (removedDepth == 0) lexicalHandler?.startCDATA()
+        }
+
+        override fun endCDATA() {
+            if (removedDepth == 0) lexicalHandler?.endCDATA()
+        }
+
+        override fun startEntity(name: String?) {
+            if (removedDepth == 0) lexicalHandler?.startEntity(name)
+        }
+
+        override fun endEntity(name: String?) {
+            if (removedDepth == 0) lexicalHandler?.endEntity(name)
+        }
+
+        override fun startDTD(name: String?, publicId: String?, systemId: String?) {
+            lexicalHandler?.startDTD(name, publicId, systemId)
+        }
+
+        override fun endDTD() {
+            lexicalHandler?.endDTD()
+        }
+    }
+
+    private companion object {
+        const val LEXICAL_HANDLER_PROPERTY = "http://xml.org/sax/properties/lexical-handler"
+
+        // StAX is not available on Android, so files are streamed with SAX.
+        // Without namespace processing, prefixed names and namespace declarations are passed on as written.
+        val parserFactory: SAXParserFactory = SAXParserFactory.newInstance()
+        val transformerFactory: TransformerFactory = TransformerFactory.newInstance()
+    }
+}
+
+/**
+ * Edits resource XML files in a [DocumentSession].
+ * The files loaded in the session are written when the block returns.
+ *
+ * A session covers the edits of one patch, not the whole patching run.
+ * Files loaded in the session must not be opened with [ResourcePatchContext.document] until the block returns.
+ */
+fun <T> ResourcePatchContext.documentSession(block: DocumentSession.() -> T): T =
+    DocumentSession(this).use(block)
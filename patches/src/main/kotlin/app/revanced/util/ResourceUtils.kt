@@ -132,17 +132,19 @@ fun ResourcePatchContext.copyAdaptiveIcon(
     }
 }
 
-fun ResourcePatchContext.appendAppVersion(appVersion: String) {
-    addEntryValues(
-        "revanced_spoof_app_version_target_entries",
-        "@string/revanced_spoof_app_version_target_entry_" + appVersion.replace(".", "_"),
-        prepend = false
-    )
-    addEntryValues(
-        "revanced_spoof_app_version_target_entry_values",
-        appVersion,
-        prepend = false
-    )
+fun ResourcePatchContext.appendAppVersion(vararg appVersions: String) = documentSession {
+    appVersions.forEach { appVersion ->
+        addEntryValues(
+            "revanced_spoof_app_version_target_entries",
+            "@string/revanced_spoof_app_version_target_entry_" + appVersion.replace(".", "_"),
+            prepend = false
+        )
+        addEntryValues(
+            "revanced_spoof_app_version_target_entry_values",
+            appVersion,
+            prepend = false
+        )
+    }
 }
 
 fun ResourcePatchContext.addEntryValues(
@@ -150,25 +152,32 @@ fun ResourcePatchContext.addEntryValues(
     attributeValue: String,
     path: String = "res/values/arrays.xml",
     prepend: Boolean = true,
+) = documentSession {
+    addEntryValues(attributeName, attributeValue, path, prepend)
+}
+
+fun DocumentSession.addEntryValues(
+    attributeName: String,
+    attributeValue: String,
+    path: String = "res/values/arrays.xml",
+    prepend: Boolean = true,
 ) {
-    document(path).use { document ->
-        with(document) {
-            val resourcesNode = documentElement
-            val childNodes = resourcesNode.childNodes
-            val newElement: Element = createElement("item")
-            for (i in 0 until childNodes.length) {
-                val node = childNodes.item(i) as? Element ?: continue
-
-                if (node.getAttribute("name") == attributeName) {
-                    newElement.appendChild(createTextNode(attributeValue))
-
-                    if (prepend) {
-                        node.appendChild(newElement)
-                    } else {
-                        node.insertBefore(newElement, node.firstChild)
-                    }
-                    break
+    with(document(path)) {
+        val resourcesNode = documentElement
+        val childNodes = resourcesNode.childNodes
+        val newElement: Element = createElement("item")
+        for (i in 0 until childNodes.length) {
+            val node = childNodes.item(i) as? Element ?: continue
+
+            if (node.getAttribute("name") == attributeName) {
+                newElement.appendChild(createTextNode(attributeValue))
+
+                if (prepend) {
+                    node.appendChild(newElement)
+                } else {
+                    node.insertBefore(newElement, node.firstChild)
                 }
+                break
             }
         }
     }
@@ -255,21 +264,10 @@ fun ResourcePatchContext.removeStringsElements(
 fun ResourcePatchContext.removeStringsElements(
     paths: Array<String>,
     replacements: Array<String>
-) {
+) = documentSession {
+    val names = replacements.toSet()
     paths.forEach { path ->
-        val resourceDirectory = get("res")
-        val targetXmlPath = resourceDirectory.resolve(path).resolve("strings.xml")
-
-        if (targetXmlPath.exists()) {
-            val targetXml = get("res/$path/strings.xml")
-
-            replacements.forEach replacementsLoop@{ replacement ->
-                targetXml.writeText(
-                    targetXml.readText()
-                        .replaceFirst(""" {4}<string name="$replacement".+""".toRegex(), "")
-                )
-            }
-        }
+        removeElements("res/$path/strings.xml", "string", "name", names)
     }
 }
 
@@ -290,24 +288,19 @@ fun ResourcePatchContext.copyResources(
     vararg resources: ResourceGroup,
 ) {
     val resourceDirectory = get("res")
+    val resourceFiles = LinkedHashMap<File, String>()
 
     for (resourceGroup in resources) {
+        val resourceDirectoryName = resourceGroup.resourceDirectoryName
+        val targetDirectory = resourceDirectory.resolve(resourceDirectoryName)
+        if (!targetDirectory.isDirectory) targetDirectory.mkdirs()
         resourceGroup.resources.forEach { resource ->
-            val resourceDirectoryName = resourceGroup.resourceDirectoryName
-            val targetDirectory = resourceDirectory.resolve(resourceDirectoryName)
-            if (!targetDirectory.isDirectory) targetDirectory.mkdirs()
             val resourceFile = "$resourceDirectoryName/$resource"
-            inputStreamFromBundledResource(
-                sourceResourceDirectory,
-                resourceFile
-            )?.let { inputStream ->
-                FilesCompat.copy(
-                    inputStream,
-                    resourceDirectory.resolve(resourceFile),
-                )
-            }
+            resourceFiles[resourceDirectory.resolve(resourceFile)] = "$sourceResourceDirectory/$resourceFile"
         }
     }
+
+    BundledResources.copy(resourceFiles)
 }
 
 internal fun inputStreamFromBundledResourceOrThrow(
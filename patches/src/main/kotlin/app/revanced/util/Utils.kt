@@ -1,5 +1,8 @@
 package app.revanced.util
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
 import java.util.logging.Logger
 
 internal object Utils {
@@ -15,4 +18,33 @@ internal object Utils {
 
     internal fun printWarn(msg: String) =
         logger.warning(msg)
+
+    /**
+     * Calls the action for each element on all processors, and returns when all calls are done.
+     *
+     * Parallel streams are not available on Android 6.0 and below,
+     * so this uses an executor instead.
+     *
+     * @throws Exception The first exception thrown by the action.
+     */
+    internal fun <T> Collection<T>.forEachParallel(action: (T) -> Unit) {
+        if (size < 2) {
+            forEach(action)
+            return
+        }
+
+        val threadCount = minOf(size, Runtime.getRuntime().availableProcessors())
+        val executor = Executors.newFixedThreadPool(threadCount)
+        try {
+            executor.invokeAll(map { element -> Callable { action(element) } }).forEach { future ->
+                try {
+                    future.get()
+                } catch (ex: ExecutionException) {
+                    throw ex.cause ?: ex
+                }
+            }
+        } finally {
+            executor.shutdown()
+        }
+    }
 }
@@ -0,0 +1,175 @@
+package app.revanced.util.fingerprint
+
+import app.revanced.patcher.Fingerprint
+import app.revanced.patcher.patch.BytecodePatchContext
+import app.revanced.util.IndexedMethod
+import app.revanced.util.Utils.printInfo
+import app.revanced.util.Utils.printWarn
+import com.android.tools.smali.dexlib2.iface.ClassDef
+import com.android.tools.smali.dexlib2.iface.Method
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+import java.util.Collections
+import java.util.IdentityHashMap
+import java.util.WeakHashMap
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Methods that fingerprints resolved to in earlier patching runs of the same app,
+ * saved to disk so repeated builds of the same app do not search all classes again.
+ *
+ * A cached method is checked with the fingerprint before it is used,
+ * so a stale entry only falls back to a full search.
+ * Only fingerprints that resolve are cached.
+ *
+ * Each fingerprint is searched for at most once per patching session,
+ * including fingerprints that do not resolve.
+ *
+ * The cache directory can be set with the `revanced.fingerprintCacheDir` system property,
+ * and the cache is disabled by setting `revanced.fingerprintCache` to `false`.
+ */
+internal object FingerprintCache {
+    private const val CACHE_DIR_PROPERTY = "revanced.fingerprintCacheDir"
+    private const val CACHE_ENABLED_PROPERTY = "revanced.fingerprintCache"
+    private const val SEPARATOR = '\t'
+
+    private val enabled = System.getProperty(CACHE_ENABLED_PROPERTY) != "false"
+
+    private val cacheDir = File(
+        System.getProperty(CACHE_DIR_PROPERTY)
+            ?: File(System.getProperty("java.io.tmpdir"), "revanced-fingerprint-cache").path
+    )
+
+    private class CachedMethod(
+        val definingClass: String,
+        val name: String,
+        val parameterTypes: List<String>,
+        val returnType: String,
+    ) {
+        fun matches(method: Method) =
+            method.name == name && method.returnType == returnType &&
+                    method.parameterTypes.map { it.toString() } == parameterTypes
+
+        fun toLine(fingerprintName: String) = listOf(
+            fingerprintName,
+            definingClass,
+            name,
+            parameterTypes.joinToString(","),
+            returnType,
+        ).joinToString(SEPARATOR.toString())
+
+        companion object {
+            fun of(method: Method) = CachedMethod(
+                method.definingClass,
+                method.name,
+                method.parameterTypes.map { it.toString() },
+                method.returnType,
+            )
+
+            fun fromLine(line: String): Pair<String, CachedMethod>? {
+                val fields = line.split(SEPARATOR)
+                if (fields.size != 5) return null
+                val parameterTypes = if (fields[3].isEmpty()) emptyList() else fields[3].split(',')
+                return fields[0] to CachedMethod(fields[1], fields[2], parameterTypes, fields[4])
+            }
+        }
+    }
+
+    /**
+     * Cache of one app, loaded once per patching session.
+     */
+    private class Session(classes: Iterable<ClassDef>) {
+        /**
+         * Key: class type.
+         */
+        val classesByType = HashMap<String, ClassDef>()
+        val cacheFile: File?
+        val methods = ConcurrentHashMap<String, CachedMethod>()
+
+        /**
+         * Method each fingerprint searched for in this session resolved to, or [NOT_RESOLVED].
+         */
+        val results: MutableMap<Fingerprint, Any> = Collections.synchronizedMap(IdentityHashMap())
+
+        init {
+            // The classes and method signatures identify the app version.
+            val digest = if (enabled) MessageDigest.getInstance("SHA-256") else null
+            classes.forEach { classDef ->
+                classesByType[classDef.type] = classDef
+                digest?.update(classDef.type.toByteArray())
+                classDef.methods.forEach { method ->
+                    digest?.update(method.name.toByteArray())
+                    method.parameterTypes.forEach { digest?.update(it.toString().toByteArray()) }
+                    digest?.update(method.returnType.toByteArray())
+                }
+            }
+            cacheFile = digest?.let {
+                val hash = it.digest().joinToString("") { byte -> "%02x".format(byte) }
+                File(cacheDir, "$hash.tsv")
+            }
+
+            try {
+                if (cacheFile?.isFile == true) {
+                    // Later lines replace earlier lines of the same fingerprint.
+                    cacheFile.forEachLine { line ->
+                        CachedMethod.fromLine(line)?.let { (name, method) -> methods[name] = method }
+                    }
+                    printInfo("Loaded ${methods.size} cached fingerprints from: $cacheFile")
+                }
+            } catch (ex: IOException) {
+                printWarn("Could not read fingerprint cache: ${ex.message}")
+            }
+        }
+
+        fun save(fingerprintName: String, method: CachedMethod) {
+            if (cacheFile == null) return
+            methods[fingerprintName] = method
+            synchronized(this) {
+                try {
+                    cacheDir.mkdirs()
+                    cacheFile.appendText(method.toLine(fingerprintName) + '\n')
+                } catch (ex: IOException) {
+                    printWarn("Could not write fingerprint cache: ${ex.message}")
+                }
+            }
+        }
+    }
+
+    private val sessions = WeakHashMap<BytecodePatchContext, Session>()
+
+    private fun BytecodePatchContext.session() = synchronized(sessions) {
+        sessions.getOrPut(this) { Session(classes) }
+    }
+
+    private val NOT_RESOLVED = Any()
+
+    /**
+     * Resolves the fingerprint using the cached method, or searches all classes and caches the result.
+     *
+     * @return The method the fingerprint resolved to, or null if it did not resolve.
+     */
+    fun resolve(context: BytecodePatchContext, fingerprintName: String, fingerprint: Fingerprint): IndexedMethod? {
+        val session = context.session()
+        session.results[fingerprint]?.let { return it as? IndexedMethod }
+
+        val resolved = with(context) {
+            val cachedMethod = session.methods[fingerprintName]
+            if (cachedMethod != null) {
+                val classDef = session.classesByType[cachedMethod.definingClass]
+                val method = classDef?.methods?.firstOrNull(cachedMethod::matches)
+                if (method != null && fingerprint.matchOrNull(method, classDef) != null) {
+                    FingerprintStatistics.cacheHits.incrementAndGet()
+                    return@with IndexedMethod(classDef, method)
+                }
+            }
+
+            FingerprintStatistics.searches.incrementAndGet()
+            val method = fingerprint.matchOrNull()?.originalMethod ?: return@with null
+            session.save(fingerprintName, CachedMethod.of(method))
+            session.classesByType[method.definingClass]?.let { classDef -> IndexedMethod(classDef, method) }
+        }
+        session.results[fingerprint] = resolved ?: NOT_RESOLVED
+        return resolved
+    }
+}
@@ -0,0 +1,28 @@
+package app.revanced.util.fingerprint
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counters of fingerprint resolution in this process, read by the patch benchmark.
+ *
+ * The fields are static, so they can be read from another class loader by reflection.
+ */
+object FingerprintStatistics {
+    /**
+     * Fingerprints that were searched for in all classes.
+     */
+    @JvmField
+    val searches = AtomicLong()
+
+    /**
+     * Fingerprints that resolved to the method saved in the fingerprint cache.
+     */
+    @JvmField
+    val cacheHits = AtomicLong()
+
+    /**
+     * Time patches waited for fingerprints to resolve, in nanoseconds.
+     */
+    @JvmField
+    val resolveNanos = AtomicLong()
+}
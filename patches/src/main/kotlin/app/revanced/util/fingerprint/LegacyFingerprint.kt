@@ -23,13 +23,30 @@ import com.android.tools.smali.dexlib2.iface.instruction.OneRegisterInstruction
 private val String.exception
     get() = PatchException("Failed to resolve $this")
 
+/**
+ * The fingerprint if it resolved, or null if it did not.
+ * Only for matching against all classes, as the match of the fingerprint is kept.
+ *
+ * @see FingerprintCache
+ */
+context(BytecodePatchContext)
+private val Pair<String, Fingerprint>.resolved: Fingerprint?
+    get() {
+        val start = System.nanoTime()
+        try {
+            return FingerprintCache.resolve(this@BytecodePatchContext, first, second)?.let { second }
+        } finally {
+            FingerprintStatistics.resolveNanos.addAndGet(System.nanoTime() - start)
+        }
+    }
+
 context(BytecodePatchContext)
 internal fun Pair<String, Fingerprint>.resolvable(): Boolean =
-    second.methodOrNull != null
+    resolved?.methodOrNull != null
 
 context(BytecodePatchContext)
 internal fun Pair<String, Fingerprint>.definingClassOrThrow(): String =
-    second.classDefOrNull?.type ?: throw first.exception
+    resolved?.classDefOrNull?.type ?: throw first.exception
 
 context(BytecodePatchContext)
 internal fun Pair<String, Fingerprint>.matchOrThrow(): Match =
@@ -45,7 +62,7 @@ internal fun Pair<String, Fingerprint>.matchOrThrow(parentFingerprint: Pair<Stri
 
 context(BytecodePatchContext)
 internal fun Pair<String, Fingerprint>.matchOrNull(): Match? =
-    second.classDefOrNull?.let {
+    resolved?.classDefOrNull?.let {
         second.matchOrNull(it)
     }
 
@@ -61,7 +78,7 @@ internal fun Pair<String, Fingerprint>.methodOrNull(): MutableMethod? =
 
 context(BytecodePatchContext)
 internal fun Pair<String, Fingerprint>.methodOrThrow(): MutableMethod =
-    second.methodOrNull ?: throw first.exception
+    resolved?.methodOrNull ?: throw first.exception
 
 context(BytecodePatchContext)
 internal fun Pair<String, Fingerprint>.methodOrThrow(parentFingerprint: Pair<String, Fingerprint>): MutableMethod =
@@ -69,7 +86,7 @@ internal fun Pair<String, Fingerprint>.methodOrThrow(parentFingerprint: Pair<Str
 
 context(BytecodePatchContext)
 internal fun Pair<String, Fingerprint>.originalMethodOrThrow(): Method =
-    second.originalMethodOrNull ?: throw first.exception
+    resolved?.originalMethodOrNull ?: throw first.exception
 
 context(BytecodePatchContext)
 internal fun Pair<String, Fingerprint>.originalMethodOrThrow(parentFingerprint: Pair<String, Fingerprint>): Method =
@@ -77,7 +94,7 @@ internal fun Pair<String, Fingerprint>.originalMethodOrThrow(parentFingerprint:
 
 context(BytecodePatchContext)
 internal fun Pair<String, Fingerprint>.mutableClassOrThrow(): MutableClass =
-    second.classDefOrNull ?: throw first.exception
+    resolved?.classDefOrNull ?: throw first.exception
 
 context(BytecodePatchContext)
 internal fun Pair<String, Fingerprint>.methodCall() =